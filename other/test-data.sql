@@ -1,37 +1,64 @@
 
-insert into users values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546013', 0, 'test@test.com', 650, 'xpto', 'test123');
+insert into users values(nextval ('user_seq'), -2436344781074054373, -5930418911843164141, 0, 'test@test.com', 650, 'xpto', 'test123');
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546000', 0, 60, '2015-01-01', '1 - maven build', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164100, 0, '1 - maven build', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546001', 0, 60, '2015-01-01', '1 - this project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164099, 0, '1 - this project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546002', 0, 60, '2015-01-02', '2 - that project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164098, 0, '2 - that project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546003', 0, 120, '2015-01-02', '2 - another project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164097, 0, '2 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546004', 0, 90, '2015-01-03', '3 - another project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164096, 0, '3 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546005', 0, 10, '2015-01-03', '3 - another project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164095, 0, '4 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546006', 0, 50, '2015-01-04', '4 - another project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164094, 0, '4 -  another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546007', 0, 45, '2015-01-04', '4 -  another project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164093, 0, '5 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546008', 0, 45, '2015-01-05', '5 - another project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164092, 0, '6 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546009', 0, 120, '2015-01-05', '5 - another project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164091, 0, '7 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546010', 0, 80, '2015-01-06', '6 - another project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164090, 0, '7 - another project 2', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546011', 0, 45, '2015-01-06', '6 - another project', '19:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164089, 0, '8 - another project', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546012', 0, 100, '2015-01-07', '7 - another project', '12:00', 1);
+insert into work_descriptions values(nextval ('workdescription_seq'), -2436344781074054373, -5930418911843164088, 0, '8 - another project 456', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546013', 0, 1200, '2015-01-07', '7 - another project 2', '19:00', 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546014', 0, 400, '2015-01-08', '8 - another project', '12:00', 1);
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164160, 0, '2015-01-01', 60, '12:00', (select id from work_descriptions where user_id = 1 and description = '1 - maven build'), 1);
 
-insert into works values(nextval ('hibernate_sequence'), 'de305d54-75b4-431b-adb2-eb6b9e546015', 0, 100, '2015-01-08', '8 - another project 456', '19:00', 1);
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164159, 0, '2015-01-01', 60, '19:00', (select id from work_descriptions where user_id = 1 and description = '1 - this project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164158, 0, '2015-01-02', 60, '12:00', (select id from work_descriptions where user_id = 1 and description = '2 - that project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164157, 0, '2015-01-02', 120, '19:00', (select id from work_descriptions where user_id = 1 and description = '2 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164156, 0, '2015-01-03', 90, '12:00', (select id from work_descriptions where user_id = 1 and description = '3 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164155, 0, '2015-01-03', 10, '19:00', (select id from work_descriptions where user_id = 1 and description = '3 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164154, 0, '2015-01-04', 50, '12:00', (select id from work_descriptions where user_id = 1 and description = '4 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164153, 0, '2015-01-04', 45, '19:00', (select id from work_descriptions where user_id = 1 and description = '4 -  another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164152, 0, '2015-01-05', 45, '12:00', (select id from work_descriptions where user_id = 1 and description = '5 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164151, 0, '2015-01-05', 120, '19:00', (select id from work_descriptions where user_id = 1 and description = '5 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164144, 0, '2015-01-06', 80, '12:00', (select id from work_descriptions where user_id = 1 and description = '6 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164143, 0, '2015-01-06', 45, '19:00', (select id from work_descriptions where user_id = 1 and description = '6 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164142, 0, '2015-01-07', 100, '12:00', (select id from work_descriptions where user_id = 1 and description = '7 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164141, 0, '2015-01-07', 1200, '19:00', (select id from work_descriptions where user_id = 1 and description = '7 - another project 2'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164140, 0, '2015-01-08', 400, '12:00', (select id from work_descriptions where user_id = 1 and description = '8 - another project'), 1);
+
+insert into works values(nextval ('work_seq'), -2436344781074054373, -5930418911843164139, 0, '2015-01-08', 100, '19:00', (select id from work_descriptions where user_id = 1 and description = '8 - another project 456'), 1);
 
 
 
@@ -0,0 +1,99 @@
+package minutes.tracker.app.benchmark;
+
+import minutes.tracker.app.model.AbstractEntity;
+import minutes.tracker.app.model.Work;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * AbstractEntity equals/hashCode, on entities whose uuid was already assigned and on entities as Hibernate
+ * loads them, with only the UUID columns set.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EntityBenchmark {
+
+    private static final int ENTITIES = 1000;
+
+    private Work work;
+    private Work sameWork;
+    private Work otherWork;
+    private UUID[] loadedUuids;
+    private Field uuidHighColumn;
+    private Field uuidLowColumn;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        uuidHighColumn = AbstractEntity.class.getDeclaredField("uuidHigh");
+        uuidHighColumn.setAccessible(true);
+        uuidLowColumn = AbstractEntity.class.getDeclaredField("uuidLow");
+        uuidLowColumn.setAccessible(true);
+
+        work = new Work();
+        sameWork = loaded(work.getUuid());
+        otherWork = new Work();
+        sameWork.getUuid();
+        otherWork.getUuid();
+
+        loadedUuids = new UUID[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            loadedUuids[i] = UUID.randomUUID();
+        }
+    }
+
+    @Benchmark
+    public int hashCodeResolved() {
+        return work.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsSame() {
+        return work.equals(sameWork);
+    }
+
+    @Benchmark
+    public boolean equalsOther() {
+        return work.equals(otherWork);
+    }
+
+    /**
+     * a new set of freshly loaded entities, as when a query result is collected into a set
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<Work> hashSetOfLoaded() throws IllegalAccessException {
+        Set<Work> works = new HashSet<>(ENTITIES * 2);
+        for (UUID uuid : loadedUuids) {
+            works.add(loaded(uuid));
+        }
+        return works;
+    }
+
+    private Work loaded(UUID uuid) throws IllegalAccessException {
+        Work loaded = new Work();
+        uuidHighColumn.setLong(loaded, uuid.getMostSignificantBits());
+        uuidLowColumn.setLong(loaded, uuid.getLeastSignificantBits());
+        return loaded;
+    }
+
+}
@@ -0,0 +1,92 @@
+package minutes.tracker.app.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.WorksDTO;
+import minutes.tracker.app.dto.serialization.TimeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Jackson (de)serialization of the works, as done by the REST API: a WorksDTO page for GET /work,
+ * and a list of WorkDTOs for the body of POST /work.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+    @Param({"10", "1000"})
+    private int works;
+
+    private WorksDTO page;
+    private WorkDTO work;
+    private String worksJson;
+    private String workJson;
+
+    private ObjectWriter writer;
+    private ObjectReader worksReader;
+    private ObjectReader workReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<WorkDTO> workList = new ArrayList<>(works);
+        for (int i = 0; i < works; i++) {
+            workList.add(new WorkDTO((long) i, new Date(), TimeCodec.toTime(i % TimeCodec.MINUTES_PER_DAY),
+                    "work description " + i, 30L));
+        }
+        page = new WorksDTO(1, 1, workList);
+        work = workList.get(0);
+
+        ObjectMapper mapper = new ObjectMapper();
+        writer = mapper.writer();
+        worksReader = mapper.reader(new TypeReference<List<WorkDTO>>() {});
+        workReader = mapper.reader(WorkDTO.class);
+        worksJson = writer.writeValueAsString(workList);
+        workJson = writer.writeValueAsString(work);
+    }
+
+    @Benchmark
+    public String serializeWorksPage() throws IOException {
+        return writer.writeValueAsString(page);
+    }
+
+    @Benchmark
+    public List<WorkDTO> deserializeWorks() throws IOException {
+        return worksReader.readValue(worksJson);
+    }
+
+    @Benchmark
+    public String serializeWork() throws IOException {
+        return writer.writeValueAsString(work);
+    }
+
+    @Benchmark
+    public WorkDTO deserializeWork() throws IOException {
+        return workReader.readValue(workJson);
+    }
+
+}
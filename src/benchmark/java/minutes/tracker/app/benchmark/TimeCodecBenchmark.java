@@ -0,0 +1,119 @@
+package minutes.tracker.app.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.TimeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Time;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ *
+ * Throughput of (de)serializing large lists of works with the HH:mm codec, against the SimpleDateFormat
+ * per value serializers that it replaced.
+ *
+ * The legacy deserializer is measured without its INFO log line, so the gain shown is a lower bound.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimeCodecBenchmark {
+
+    @Param({"1000"})
+    private int works;
+
+    private List<WorkDTO> workList;
+    private String json;
+
+    private ObjectMapper mapper;
+    private ObjectMapper legacyMapper;
+
+    @Setup
+    public void setUp() throws IOException {
+        workList = new ArrayList<>(works);
+        for (int i = 0; i < works; i++) {
+            workList.add(new WorkDTO((long) i, new Date(), TimeCodec.toTime(i % TimeCodec.MINUTES_PER_DAY),
+                    "work " + i, 30L));
+        }
+        mapper = new ObjectMapper();
+        legacyMapper = new ObjectMapper();
+        legacyMapper.addMixInAnnotations(WorkDTO.class, LegacyTimeMixin.class);
+        json = mapper.writeValueAsString(workList);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return mapper.writeValueAsString(workList);
+    }
+
+    @Benchmark
+    public String serializeLegacy() throws IOException {
+        return legacyMapper.writeValueAsString(workList);
+    }
+
+    @Benchmark
+    public WorkDTO[] deserialize() throws IOException {
+        return mapper.readValue(json, WorkDTO[].class);
+    }
+
+    @Benchmark
+    public WorkDTO[] deserializeLegacy() throws IOException {
+        return legacyMapper.readValue(json, WorkDTO[].class);
+    }
+
+    abstract static class LegacyTimeMixin {
+
+        @JsonSerialize(using = LegacyTimeSerializer.class)
+        @JsonDeserialize(using = LegacyTimeDeserializer.class)
+        private Time time;
+    }
+
+    public static class LegacyTimeSerializer extends JsonSerializer<Time> {
+
+        @Override
+        public void serialize(Time value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            SimpleDateFormat formatter = new SimpleDateFormat("HH:mm");
+            jgen.writeString(formatter.format(value));
+        }
+    }
+
+    public static class LegacyTimeDeserializer extends JsonDeserializer<Time> {
+
+        @Override
+        public Time deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            SimpleDateFormat formatter = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+            try {
+                return new Time(formatter.parse("1970/01/01 " + jp.getText()).getTime());
+            } catch (ParseException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+}
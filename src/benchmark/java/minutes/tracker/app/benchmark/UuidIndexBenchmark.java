@@ -0,0 +1,120 @@
+package minutes.tracker.app.benchmark;
+
+import minutes.tracker.app.model.TimeOrderedUuid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Inserts into a table whose primary key is the uuid, in batches of 1000 rows, for the uuid layouts:
+ *
+ * - varchar-random: the former 36 chars column with random uuids
+ * - bigint-random: two numbers with random uuids
+ * - bigint-time-ordered: two numbers with the time-ordered uuids of the entities
+ *
+ * The table grows during the whole trial, like a production table. The benchmark runs on an in-memory HSQLDB
+ * database by default, whose indexes are not paged, so the insert order matters much less there than on disk.
+ * Set BENCHMARK_JDBC_URL, BENCHMARK_JDBC_USER and BENCHMARK_JDBC_PASSWORD to run it against a PostgreSQL database,
+ * the size of the index is then printed at the end of each trial.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UuidIndexBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String TABLE = "UUID_BENCHMARK";
+
+    @Param({"varchar-random", "bigint-random", "bigint-time-ordered"})
+    private String layout;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private int payload;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getenv("BENCHMARK_JDBC_URL");
+        if (url == null) {
+            connection = DriverManager.getConnection("jdbc:hsqldb:mem:uuid-" + UUID.randomUUID(), "sa", "");
+        } else {
+            connection = DriverManager.getConnection(url, System.getenv("BENCHMARK_JDBC_USER"),
+                    System.getenv("BENCHMARK_JDBC_PASSWORD"));
+        }
+        connection.setAutoCommit(false);
+
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("drop table if exists " + TABLE);
+            if (layout.startsWith("varchar")) {
+                ddl.execute("create table " + TABLE + " (uuid varchar(36) primary key, payload integer)");
+                insert = connection.prepareStatement("insert into " + TABLE + " values (?, ?)");
+            } else {
+                ddl.execute("create table " + TABLE + " (uuid_high bigint, uuid_low bigint, payload integer, " +
+                        "primary key (uuid_high, uuid_low))");
+                insert = connection.prepareStatement("insert into " + TABLE + " values (?, ?, ?)");
+            }
+        }
+        connection.commit();
+    }
+
+    @Benchmark
+    public int[] insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            UUID uuid = layout.endsWith("time-ordered") ? TimeOrderedUuid.generate() : UUID.randomUUID();
+            if (layout.startsWith("varchar")) {
+                insert.setString(1, uuid.toString());
+                insert.setInt(2, payload++);
+            } else {
+                insert.setLong(1, uuid.getMostSignificantBits());
+                insert.setLong(2, uuid.getLeastSignificantBits());
+                insert.setInt(3, payload++);
+            }
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        if (connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres")) {
+            try (Statement query = connection.createStatement();
+                 ResultSet size = query.executeQuery("select count(*), pg_relation_size('" +
+                         TABLE.toLowerCase() + "_pkey') from " + TABLE)) {
+                size.next();
+                System.out.println(layout + ": " + size.getLong(1) + " rows, index of " +
+                        size.getLong(2) / 1024 + " KB");
+            }
+        }
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("drop table " + TABLE);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+}
@@ -0,0 +1,99 @@
+package minutes.tracker.app.benchmark;
+
+import minutes.tracker.app.services.UserService;
+import minutes.tracker.app.services.ValidationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * ValidationUtils with the email and password regexes of UserService, for valid and invalid input.
+ * An invalid value costs an IllegalArgumentException, like in the REST API.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidationBenchmark {
+
+    private Pattern emailRegex;
+    private Pattern passwordRegex;
+
+    private String validEmail = "test.user@gmail.com";
+    private String invalidEmail = "test.user.gmail.com";
+    private String longInvalidEmail = "test_user_with_a_rather_long_local_part.and.more.dots@example";
+    private String validPassword = "Password2";
+    private String invalidPassword = "password";
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        emailRegex = regex("EMAIL_REGEX");
+        passwordRegex = regex("PASSWORD_REGEX");
+    }
+
+    @Benchmark
+    public boolean notBlankAndMinimumLength() {
+        ValidationUtils.assertNotBlank(validEmail, "blank");
+        ValidationUtils.assertMinimumLength(validEmail, 6, "too short");
+        return true;
+    }
+
+    @Benchmark
+    public boolean validEmail() {
+        ValidationUtils.assertMatches(validEmail, emailRegex, "invalid");
+        return true;
+    }
+
+    @Benchmark
+    public boolean invalidEmail() {
+        return rejected(invalidEmail, emailRegex);
+    }
+
+    @Benchmark
+    public boolean longInvalidEmail() {
+        return rejected(longInvalidEmail, emailRegex);
+    }
+
+    @Benchmark
+    public boolean validPassword() {
+        ValidationUtils.assertMatches(validPassword, passwordRegex, "invalid");
+        return true;
+    }
+
+    @Benchmark
+    public boolean invalidPassword() {
+        return rejected(invalidPassword, passwordRegex);
+    }
+
+    private static boolean rejected(String value, Pattern regex) {
+        try {
+            ValidationUtils.assertMatches(value, regex, "invalid");
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    // the regexes are private to UserService, they are read once so that the measured code is the production one
+    private static Pattern regex(String name) throws ReflectiveOperationException {
+        Field field = UserService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (Pattern) field.get(null);
+    }
+
+}
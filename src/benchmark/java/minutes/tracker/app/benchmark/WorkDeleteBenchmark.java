@@ -0,0 +1,117 @@
+package minutes.tracker.app.benchmark;
+
+import minutes.tracker.app.dao.WorkRepository;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.TimeCodec;
+import minutes.tracker.app.model.Work;
+import minutes.tracker.app.services.WorkService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * Deletes of works against the in-memory HSQLDB database of the test profile: the bulk delete of WorkService, which
+ * also updates the daily minutes, and the bulk delete of WorkRepository alone, against the loop that DELETE /work
+ * used before, one find and one remove per work.
+ *
+ * The works to delete are saved before each call, outside of the measured time.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorkDeleteBenchmark {
+
+    private static final String USERNAME = "test123";
+
+    @Param({"10", "100"})
+    private int deletedWorks;
+
+    private AnnotationConfigApplicationContext context;
+    private WorkService workService;
+    private WorkRepository workRepository;
+    private EntityManager em;
+    private TransactionTemplate transaction;
+    private List<WorkDTO> newWorks;
+    private List<Long> ids;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.register(TestConfiguration.class, RootContextConfig.class);
+        context.refresh();
+
+        workService = context.getBean(WorkService.class);
+        workRepository = context.getBean(WorkRepository.class);
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        newWorks = new ArrayList<>(deletedWorks);
+        for (int i = 0; i < deletedWorks; i++) {
+            newWorks.add(new WorkDTO(null, Date.valueOf("2016-03-01"), TimeCodec.toTime(i % TimeCodec.MINUTES_PER_DAY),
+                    "deleted " + i, 10L));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void saveWorks() {
+        ids = workService.saveWorks(USERNAME, newWorks).stream().map(Work::getId).collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> deleteWorks() {
+        return workService.deleteWorks(USERNAME, ids);
+    }
+
+    /**
+     * the bulk delete alone, without the daily minutes, to compare with the loop that did not update them either
+     */
+    @Benchmark
+    public List<WorkDTO> deleteUserWorks() {
+        return transaction.execute((status) -> workRepository.deleteUserWorks(USERNAME, ids));
+    }
+
+    @Benchmark
+    public void deleteWorksOneByOne() {
+        transaction.execute((status) -> {
+            for (Long id : ids) {
+                em.remove(em.find(Work.class, id));
+            }
+            return null;
+        });
+    }
+}
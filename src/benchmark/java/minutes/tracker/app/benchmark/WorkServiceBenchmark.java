@@ -0,0 +1,151 @@
+package minutes.tracker.app.benchmark;
+
+import minutes.tracker.app.dao.WorkRepository;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.TimeCodec;
+import minutes.tracker.app.model.SearchResult;
+import minutes.tracker.app.model.Work;
+import minutes.tracker.app.services.SearchPageCache;
+import minutes.tracker.app.services.WorkService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * WorkService searches and saves against the in-memory HSQLDB database of the test profile, with the
+ * test data of TestDataInitializer.
+ *
+ * Each benchmark runs in its own fork, so the works saved by saveWorks do not slow down the searches.
+ *
+ * findWorksPage and findWorksPageAsEntities compare the search query alone, with -prof gc for the allocations.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorkServiceBenchmark {
+
+    private static final String USERNAME = "test123";
+
+    private static final Date FROM_DATE = Date.valueOf("2015-01-01");
+    private static final Date TO_DATE = Date.valueOf("2015-01-08");
+
+    @Param({"10"})
+    private int savedWorks;
+
+    private AnnotationConfigApplicationContext context;
+    private WorkService workService;
+    private SearchPageCache searchPageCache;
+    private WorkRepository workRepository;
+    private EntityManager em;
+    private TransactionTemplate readOnlyTransaction;
+    private List<WorkDTO> newWorks;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("test");
+        context.register(TestConfiguration.class, RootContextConfig.class);
+        context.refresh();
+
+        workService = context.getBean(WorkService.class);
+        searchPageCache = context.getBean(SearchPageCache.class);
+        workRepository = context.getBean(WorkRepository.class);
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        newWorks = new ArrayList<>(savedWorks);
+        for (int i = 0; i < savedWorks; i++) {
+            newWorks.add(new WorkDTO(null, Date.valueOf("2016-02-01"), TimeCodec.toTime(i * 10), "benchmark " + i, 10L));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * the search as the database sees it, the cached page is evicted first
+     */
+    @Benchmark
+    public SearchResult<WorkDTO> findWorks() {
+        searchPageCache.evictUser(USERNAME);
+        return workService.findWorks(USERNAME, FROM_DATE, TO_DATE, null, null, 1);
+    }
+
+    /**
+     * the search answered by the search page cache, its fork has no replica: the pages read on a replica are not
+     * cached, and the benchmark runs longer than the sticky window of a save would keep the user on the primary
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Ddb.replica.urls=")
+    public SearchResult<WorkDTO> findWorksCached() {
+        return workService.findWorks(USERNAME, FROM_DATE, TO_DATE, null, null, 1);
+    }
+
+    /**
+     * the page of findWorks selected directly into WorkDTO, as the search does
+     */
+    @Benchmark
+    public List<WorkDTO> findWorksPage() {
+        return readOnlyTransaction.execute((status) -> workRepository.findWorksByDateTime(USERNAME, FROM_DATE, TO_DATE,
+                null, null, null, 1, WorkRepository.PAGE_SIZE + 1));
+    }
+
+    /**
+     * the same page loaded as Work entities and mapped to WorkDTO, as the search did before it selected the DTOs
+     */
+    @Benchmark
+    public List<WorkDTO> findWorksPageAsEntities() {
+        return readOnlyTransaction.execute((status) -> WorkDTO.mapFromWorksEntities(em.createQuery(
+                "select w from Work w join fetch w.description " +
+                "where w.user.username = :username and w.date >= :fromDate and w.date <= :toDate " +
+                "order by w.date desc, w.time asc, w.id asc", Work.class)
+                .setParameter("username", USERNAME)
+                .setParameter("fromDate", FROM_DATE)
+                .setParameter("toDate", TO_DATE)
+                .setMaxResults(WorkRepository.PAGE_SIZE + 1)
+                .getResultList()));
+    }
+
+    @Benchmark
+    public SearchResult<WorkDTO> findWorksByTime() {
+        searchPageCache.evictUser(USERNAME);
+        return workService.findWorks(USERNAME, FROM_DATE, TO_DATE, Time.valueOf("11:00:00"), Time.valueOf("13:00:00"), 1);
+    }
+
+    @Benchmark
+    public List<Work> saveWorks() {
+        return workService.saveWorks(USERNAME, newWorks);
+    }
+
+}
@@ -0,0 +1,51 @@
+package minutes.tracker.app.controllers;
+
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ *
+ * Adapts the futures of the @see minutes.tracker.app.services.RequestExecutors to Spring MVC asynchronous results.
+ *
+ * Errors are handed to the controller exception handlers, except when the request was rejected because the server
+ * is busy or timed out, which are replied with 503 (service unavailable).
+ *
+ */
+final class DeferredResults {
+
+    /**
+     * how long a request can wait for its result before it is answered with 503
+     */
+    static final long TIMEOUT_MILLIS = 30 * 1000;
+
+    private DeferredResults() {
+    }
+
+    static <T> DeferredResult<T> of(CompletableFuture<T> future) {
+        DeferredResult<T> deferredResult = new DeferredResult<>(TIMEOUT_MILLIS,
+                new ResponseEntity<>("The request timed out.", HttpStatus.SERVICE_UNAVAILABLE));
+
+        future.whenComplete((result, error) -> {
+            if (error == null) {
+                deferredResult.setResult(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+                if (cause instanceof RejectedExecutionException) {
+                    deferredResult.setErrorResult(
+                            new ResponseEntity<>("The server is busy, try again later.", HttpStatus.SERVICE_UNAVAILABLE));
+                } else {
+                    deferredResult.setErrorResult(cause);
+                }
+            }
+        });
+
+        return deferredResult;
+    }
+}
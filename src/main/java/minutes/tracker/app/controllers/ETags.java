@@ -0,0 +1,90 @@
+package minutes.tracker.app.controllers;
+
+
+import minutes.tracker.app.model.VersionedResult;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ * Builds the strong ETags of the REST replies from the data version of the user, @see
+ * minutes.tracker.app.services.UserDataVersions
+ *
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     *
+     * marks the reply as not modified if the client already has the current version. The reply can be kept by the
+     * browser but must be revalidated (Spring Security forbids any caching by default).
+     *
+     * The ETag is only set here on a 304 reply: a reply with a body gets it from the read, @see #tag
+     *
+     * @param dataVersion - the current data version of the user
+     * @param request - the request being answered
+     * @return true if the client version is current, in which case the reply is 304 and has no body
+     */
+    static boolean checkNotModified(String dataVersion, NativeWebRequest request) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+
+        if (response != null) {
+            // replaces the no-store of Spring Security, the Pragma and Expires headers already mean revalidate
+            response.setHeader("Cache-Control", "private, no-cache");
+        }
+
+        String etag = of(dataVersion, request);
+
+        return etag.equals(request.getHeader("If-None-Match")) && request.checkNotModified(etag);
+    }
+
+    /**
+     *
+     * sets the ETag of a reply from the version its body was read at - a body read on a replica has no version and
+     * gets no ETag, as it can be older than the current version.
+     *
+     * @param read - the body of the reply and its data version
+     * @param request - the request being answered
+     * @return the body of the reply
+     */
+    static <T> T tag(VersionedResult<T> read, NativeWebRequest request) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+
+        if (response != null && read.getDataVersion() != null) {
+            response.setHeader("ETag", of(read.getDataVersion(), request));
+        }
+
+        return read.getResult();
+    }
+
+    /**
+     *
+     * The current day is part of the tag, as some replies depend on it (today's minutes, default search range).
+     *
+     * @param dataVersion - the current data version of the user
+     * @param request - the request, its parameters are part of the tag
+     * @return a strong ETag, that changes if the data version, the day or the request parameters change
+     */
+    static String of(String dataVersion, WebRequest request) {
+        StringBuilder parameters = new StringBuilder();
+
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            parameters.append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue())).append('&');
+        }
+
+        String parametersHash = DigestUtils.md5DigestAsHex(parameters.toString().getBytes(StandardCharsets.UTF_8));
+
+        return "\"" + dataVersion + "-" + LocalDate.now() + "-" + parametersHash + "\"";
+    }
+}
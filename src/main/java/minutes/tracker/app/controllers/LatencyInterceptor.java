@@ -0,0 +1,54 @@
+package minutes.tracker.app.controllers;
+
+import minutes.tracker.app.services.LatencyHistogram;
+import minutes.tracker.app.services.LatencyMetrics;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Records the latency of each REST handler, from the first dispatch of the request until it completes.
+ *
+ * The asynchronous handlers are dispatched twice, the start time is kept from the first dispatch and the latency
+ * is recorded once the result was written.
+ *
+ */
+public class LatencyInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String START_NANOS = LatencyInterceptor.class.getName() + ".startNanos";
+
+    private final LatencyMetrics latencyMetrics;
+    private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public LatencyInterceptor(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_NANOS) == null) {
+            request.setAttribute(START_NANOS, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object startNanos = request.getAttribute(START_NANOS);
+        if (startNanos != null && handler instanceof HandlerMethod) {
+            histogramOf((HandlerMethod) handler).recordSince((Long) startNanos);
+        }
+    }
+
+    private LatencyHistogram histogramOf(HandlerMethod handler) {
+        return histograms.computeIfAbsent(handler.getMethod(), (method) -> latencyMetrics.histogram(
+                LatencyMetrics.HTTP_REQUESTS, handler.getBeanType().getSimpleName() + "." + method.getName()));
+    }
+
+}
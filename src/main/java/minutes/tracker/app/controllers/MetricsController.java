@@ -0,0 +1,36 @@
+package minutes.tracker.app.controllers;
+
+
+import minutes.tracker.app.services.MetricsService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ *
+ *  Publishes the metrics of the application in the Prometheus text format, for an authenticated scraper.
+ *
+ */
+@Controller
+@RequestMapping("metrics")
+public class MetricsController {
+
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @RequestMapping(method = RequestMethod.GET)
+    public ResponseEntity<String> scrape() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, PROMETHEUS_TEXT);
+        headers.setCacheControl("no-cache");
+        return new ResponseEntity<>(metricsService.scrape(), headers, HttpStatus.OK);
+    }
+
+}
@@ -0,0 +1,79 @@
+package minutes.tracker.app.controllers;
+
+import minutes.tracker.app.dao.QueryStats;
+import minutes.tracker.app.services.LatencyHistogram;
+import minutes.tracker.app.services.LatencyMetrics;
+import org.apache.log4j.Logger;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Accounts the database work of each request: the statements it ran, the time they took and the rows they fetched,
+ * @see QueryStats
+ *
+ * The stats are attached to the thread of each dispatch, and follow the asynchronous handlers to the request
+ * executors. Once the request completes, its time in the database is recorded per handler, and a summary is
+ * logged at DEBUG.
+ *
+ */
+public class QueryAccountingInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryAccountingInterceptor.class);
+
+    private static final String QUERY_STATS = QueryAccountingInterceptor.class.getName() + ".queryStats";
+
+    private final LatencyMetrics latencyMetrics;
+    private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public QueryAccountingInterceptor(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryStats stats = (QueryStats) request.getAttribute(QUERY_STATS);
+        if (stats == null) {
+            stats = new QueryStats();
+            request.setAttribute(QUERY_STATS, stats);
+        }
+        QueryStats.attach(stats);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the container thread is released, the request continues in the executors and a second dispatch
+        QueryStats.detach();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryStats.detach();
+        QueryStats stats = (QueryStats) request.getAttribute(QUERY_STATS);
+        if (stats == null) {
+            return;
+        }
+        if (handler instanceof HandlerMethod) {
+            histogramOf((HandlerMethod) handler).record(TimeUnit.NANOSECONDS.toMicros(stats.getDatabaseNanos()));
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(request.getMethod() + " " + request.getRequestURI() + ": " + stats.getStatements() +
+                    " statements, " + TimeUnit.NANOSECONDS.toMillis(stats.getDatabaseNanos()) +
+                    " ms in the database, " + stats.getRows() + " rows");
+        }
+    }
+
+    private LatencyHistogram histogramOf(HandlerMethod handler) {
+        return histograms.computeIfAbsent(handler.getMethod(), (method) -> latencyMetrics.histogram(
+                LatencyMetrics.HTTP_REQUEST_DATABASE_TIME, handler.getBeanType().getSimpleName() + "." + method.getName()));
+    }
+
+}
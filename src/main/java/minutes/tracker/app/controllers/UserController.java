@@ -4,6 +4,8 @@ package minutes.tracker.app.controllers;
 import minutes.tracker.app.dto.NewUserDTO;
 import minutes.tracker.app.dto.UserInfoDTO;
 import minutes.tracker.app.model.User;
+import minutes.tracker.app.services.RequestExecutors;
+import minutes.tracker.app.services.UserDataVersions;
 import minutes.tracker.app.services.UserService;
 
 import org.apache.log4j.Logger;
@@ -12,6 +14,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.security.Principal;
 
@@ -30,22 +34,39 @@ public class UserController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    private RequestExecutors requestExecutors;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    // no @ResponseStatus, it would replace the 304 status of the not modified replies
     @ResponseBody
-    @ResponseStatus(HttpStatus.OK)
     @RequestMapping(method = RequestMethod.GET)
-    public UserInfoDTO getUserInfo(Principal principal) {
+    public DeferredResult<UserInfoDTO> getUserInfo(Principal principal, NativeWebRequest webRequest) {
+
+        if (ETags.checkNotModified(userDataVersions.currentVersion(principal.getName()), webRequest)) {
+            return null;
+        }
 
-        User user = userService.findUserByUsername(principal.getName());
-        Long todaysMinutes = userService.findTodaysMinutesForUser(principal.getName());
+        // the user and its minutes are read in one transaction, the ETag is only sent if it ran on the primary
+        return DeferredResults.of(requestExecutors.read(() -> ETags.tag(userDataVersions.read(principal.getName(), () -> {
+            User user = userService.findUserByUsername(principal.getName());
+            Long todaysMinutes = userService.findTodaysMinutesForUser(principal.getName());
 
-        return user != null ? new UserInfoDTO(user.getUsername(), user.getMaxMinutesPerDay(), todaysMinutes) : null;
+            return user != null ? new UserInfoDTO(user.getUsername(), user.getMaxMinutesPerDay(), todaysMinutes) : null;
+        }), webRequest)));
     }
 
     @ResponseBody
     @ResponseStatus(HttpStatus.OK)
     @RequestMapping(method = RequestMethod.PUT)
-    public void updateUserMaxMinutesPerDay(Principal principal, @RequestBody Long newMaxMinutes) {
-        userService.updateUserMaxMinutesPerDay(principal.getName(), newMaxMinutes);
+    public DeferredResult<Void> updateUserMaxMinutesPerDay(Principal principal, @RequestBody Long newMaxMinutes) {
+
+        return DeferredResults.of(requestExecutors.write(() -> {
+            userService.updateUserMaxMinutesPerDay(principal.getName(), newMaxMinutes);
+            return null;
+        }));
     }
 
 
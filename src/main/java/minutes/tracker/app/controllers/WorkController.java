@@ -1,10 +1,18 @@
 package minutes.tracker.app.controllers;
 
 
+import minutes.tracker.app.dao.WorkRepository;
 import minutes.tracker.app.dto.WorkDTO;
 import minutes.tracker.app.dto.WorksDTO;
+import minutes.tracker.app.dto.serialization.WorkExportWriter;
+import minutes.tracker.app.dto.serialization.WorkFileFormat;
+import minutes.tracker.app.model.CountMode;
+import minutes.tracker.app.model.DailyMinutes;
+import minutes.tracker.app.model.DescriptionMatch;
 import minutes.tracker.app.model.Work;
 import minutes.tracker.app.model.SearchResult;
+import minutes.tracker.app.services.RequestExecutors;
+import minutes.tracker.app.services.UserDataVersions;
 import minutes.tracker.app.services.WorkService;
 
 import org.apache.log4j.Logger;
@@ -14,17 +22,28 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.sql.Time;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 /**
  *
  *  REST service for works - allows to update, create and search for works for the currently logged in user.
  *
+ *  The searches and saves are asynchronous: they run on the @see RequestExecutors pools, and the servlet container
+ *  thread is released while they wait for the database.
+ *
  */
 @Controller
 @RequestMapping("work")
@@ -32,56 +51,161 @@ public class WorkController {
 
     Logger LOGGER = Logger.getLogger(WorkController.class);
 
-    private static final long DAY_IN_MS = 1000 * 60 * 60 * 24;
-
 
     @Autowired
     private WorkService workService;
 
+    @Autowired
+    private RequestExecutors requestExecutors;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
     /**
      * search Works for the current user by date and time ranges.
      *
+     * Two pagination modes are supported: by page number, or by cursor (keyset pagination). The cursor mode is
+     * meant for deep pages, as the results are not counted and no rows are skipped - in that mode the current
+     * page and total pages are returned as zero.
      *
      * @param principal  - the current logged in user
      * @param fromDate - search from this date, including
      * @param toDate - search until this date, including
      * @param fromTime - search from this time, including
      * @param toTime - search to this time, including
-     * @param pageNumber - the page number (each page has 10 entries)
-     * @return - @see WorksDTO with the current page, total pages and the list of works
+     * @param description - only the works whose description contains this text, ignoring the case
+     * @param descriptionMatch - contains (default) or prefix, to only find the descriptions that start with the text
+     * @param pageNumber - the page number (each page has 10 entries), mandatory if no cursor is given
+     * @param cursor - the next or previous cursor returned by a previous search, takes precedence over the page number
+     * @param count - how the total pages are computed in page number mode: exact (default), capped or none,
+     *              @see CountMode. If the total is not exact, totalPagesExact is false on the reply
+     * @param webRequest - the request, to reply 304 (not modified) if its ETag matches the current data of the user.
+     *                   The ETag is only sent with works read on the primary
+     * @return - @see WorksDTO with the current page, total pages, the list of works and the neighbour page cursors
      */
+    // no @ResponseStatus, it would replace the 304 status of the not modified replies
     @ResponseBody
-    @ResponseStatus(HttpStatus.OK)
     @RequestMapping(method = RequestMethod.GET)
-    public WorksDTO searchWorksByDate(
+    public DeferredResult<WorksDTO> searchWorksByDate(
             Principal principal,
             @RequestParam(value = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy/MM/dd") Date fromDate,
             @RequestParam(value = "toDate", required = false) @DateTimeFormat(pattern = "yyyy/MM/dd") Date toDate,
             @RequestParam(value = "fromTime", required = false) @DateTimeFormat(pattern = "yyyy/MM/dd HH:mm") Date fromTime,
             @RequestParam(value = "toTime", required = false) @DateTimeFormat(pattern = "yyyy/MM/dd HH:mm") Date toTime,
-            @RequestParam(value = "pageNumber") Integer pageNumber) {
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "descriptionMatch", required = false, defaultValue = "contains") String descriptionMatch,
+            @RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "count", required = false, defaultValue = "exact") String count,
+            NativeWebRequest webRequest) {
+
+        if (ETags.checkNotModified(userDataVersions.currentVersion(principal.getName()), webRequest)) {
+            return null;
+        }
+
+        return DeferredResults.of(requestExecutors.read(() -> ETags.tag(userDataVersions.read(principal.getName(),
+                () -> searchWorks(principal.getName(), fromDate, toDate, fromTime, toTime, description,
+                        descriptionMatch, pageNumber, cursor, count)), webRequest)));
+    }
+
+    private WorksDTO searchWorks(String username, Date fromDate, Date toDate, Date fromTime, Date toTime,
+                                 String description, String descriptionMatch, Integer pageNumber, String cursor,
+                                 String count) {
 
         if (fromDate == null && toDate == null) {
-            fromDate = new Date(System.currentTimeMillis() - (3 * DAY_IN_MS));
-            toDate = new Date();
+            // the last 3 whole days, so that the default search is the same all day long and its pages can be cached
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(DailyMinutes.dayOf(new Date()));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            toDate = new Date(calendar.getTimeInMillis() - 1);
+            calendar.add(Calendar.DAY_OF_MONTH, -3);
+            fromDate = calendar.getTime();
+        }
+
+        Time fromSqlTime = fromTime != null ? new Time(fromTime.getTime()) : null;
+        Time toSqlTime = toTime != null ? new Time(toTime.getTime()) : null;
+        DescriptionMatch match = DescriptionMatch.valueOf(descriptionMatch.toUpperCase());
+
+        if (cursor != null) {
+            SearchResult<WorkDTO> result = workService.findWorksFromCursor(username, fromDate, toDate,
+                    fromSqlTime, toSqlTime, description, match, cursor);
+
+            return new WorksDTO(0, 0, result.getResult(),
+                    result.getNextCursor(), result.getPreviousCursor());
+        }
+
+        if (pageNumber == null) {
+            throw new IllegalArgumentException("Either the page number or the cursor is needed.");
         }
 
-        SearchResult<Work> result = workService.findWorks(
-                principal.getName(),
+        SearchResult<WorkDTO> result = workService.findWorks(
+                username,
                 fromDate,
                 toDate,
-                fromTime != null ? new Time(fromTime.getTime()) : null,
-                toTime != null ? new Time(toTime.getTime()) : null,
-                pageNumber);
+                fromSqlTime,
+                toSqlTime,
+                description,
+                match,
+                pageNumber,
+                CountMode.valueOf(count.toUpperCase()));
 
         Long resultsCount = result.getResultsCount();
-        Long totalPages = resultsCount / 10;
+        Long totalPages = resultsCount / WorkRepository.PAGE_SIZE;
 
-        if (resultsCount % 10 > 0) {
+        if (resultsCount % WorkRepository.PAGE_SIZE > 0) {
             totalPages++;
         }
 
-        return new WorksDTO(pageNumber, totalPages, WorkDTO.mapFromWorksEntities(result.getResult()));
+        WorksDTO worksDTO = new WorksDTO(pageNumber, totalPages, result.getResult(),
+                result.getNextCursor(), result.getPreviousCursor());
+        worksDTO.setTotalPagesExact(result.isResultsCountExact());
+
+        return worksDTO;
+    }
+
+    /**
+     *
+     * exports all the works of the current user in a date range, as CSV or NDJSON. The works are written to the
+     * response as they are read from the database, so any number of works can be exported.
+     *
+     * @param principal  - the current logged in user
+     * @param fromDate - export from this date, including
+     * @param toDate - export until this date, including
+     * @param format - csv (default) or ndjson
+     * @param gzip - if true the response is gzip encoded
+     * @param response - the response the works are written to
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public void exportWorks(
+            Principal principal,
+            @RequestParam(value = "fromDate") @DateTimeFormat(pattern = "yyyy/MM/dd") Date fromDate,
+            @RequestParam(value = "toDate") @DateTimeFormat(pattern = "yyyy/MM/dd") Date toDate,
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+
+        WorkFileFormat fileFormat = WorkFileFormat.fromExtension(format);
+
+        response.setContentType(fileFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"works." + fileFormat.getExtension() + "\"");
+
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        OutputStream output = gzip ? new GZIPOutputStream(response.getOutputStream()) : response.getOutputStream();
+        WorkExportWriter writer = new WorkExportWriter(fileFormat, output);
+
+        workService.exportWorks(principal.getName(), fromDate, toDate, (work) -> {
+            try {
+                writer.write(work);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        writer.flush();
+        output.close();
     }
 
     /**
@@ -95,26 +219,30 @@ public class WorkController {
     @ResponseBody
     @ResponseStatus(HttpStatus.OK)
     @RequestMapping(method = RequestMethod.POST)
-    public List<WorkDTO> saveWorks(Principal principal, @RequestBody List<WorkDTO> works) {
+    public DeferredResult<List<WorkDTO>> saveWorks(Principal principal, @RequestBody List<WorkDTO> works) {
 
-        List<Work> savedWorks = workService.saveWorks(principal.getName(), works);
+        return DeferredResults.of(requestExecutors.write(() -> {
+            List<Work> savedWorks = workService.saveWorks(principal.getName(), works);
 
-        return savedWorks.stream()
-                .map(WorkDTO::mapFromWorkEntity)
-                .collect(Collectors.toList());
+            return savedWorks.stream()
+                    .map(WorkDTO::mapFromWorkEntity)
+                    .collect(Collectors.toList());
+        }));
     }
 
     /**
      *
-     * deletes a list of works
+     * deletes a list of works of the current user
      *
+     * @param principal - the current logged in user
      * @param deletedWorkIds - the ids of the works to be deleted
+     * @return - the ids of the works that where deleted, works that don't exist or belong to another user are skipped
      */
     @ResponseBody
     @ResponseStatus(HttpStatus.OK)
     @RequestMapping(method = RequestMethod.DELETE)
-    public void deleteWorks(@RequestBody List<Long> deletedWorkIds) {
-        workService.deleteWorks(deletedWorkIds);
+    public List<Long> deleteWorks(Principal principal, @RequestBody List<Long> deletedWorkIds) {
+        return workService.deleteWorks(principal.getName(), deletedWorkIds);
     }
 
     /**
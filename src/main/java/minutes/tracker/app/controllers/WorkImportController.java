@@ -0,0 +1,92 @@
+package minutes.tracker.app.controllers;
+
+
+import minutes.tracker.app.dto.WorkImportDTO;
+import minutes.tracker.app.dto.serialization.WorkFileFormat;
+import minutes.tracker.app.model.WorkImport;
+import minutes.tracker.app.services.WorkImportService;
+import minutes.tracker.app.services.WorkService;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+
+/**
+ *
+ *  REST service for bulk imports of works of the currently logged in user.
+ *
+ */
+@Controller
+@RequestMapping("work/import")
+public class WorkImportController {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkImportController.class);
+
+    @Autowired
+    private WorkImportService workImportService;
+
+    @Autowired
+    private WorkService workService;
+
+    /**
+     *
+     * imports works from the request body, as CSV (text/csv) or NDJSON (application/x-ndjson). The body is read
+     * as a stream and saved in committed batches - if the import is interrupted, it can be resumed by sending the
+     * same file again with the same import id.
+     *
+     * @param principal - the current logged in user
+     * @param importId - the id of the import, chosen by the client
+     * @param contentType - the format of the body
+     * @param body - the works to import
+     * @return - the import progress
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.OK)
+    @RequestMapping(method = RequestMethod.POST)
+    public WorkImportDTO importWorks(Principal principal,
+                                     @RequestParam(value = "importId") String importId,
+                                     @RequestHeader(value = "Content-Type") String contentType,
+                                     InputStream body) throws IOException {
+
+        WorkImport workImport = workImportService.importWorks(principal.getName(), importId,
+                WorkFileFormat.fromContentType(contentType), body);
+
+        return WorkImportDTO.mapFromWorkImportEntity(workImport);
+    }
+
+    /**
+     *
+     * the progress of an import, can be called while the import is running
+     *
+     * @param principal - the current logged in user
+     * @param importId - the id of the import
+     * @return - the import progress
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.OK)
+    @RequestMapping(value = "/{importId}", method = RequestMethod.GET)
+    public WorkImportDTO getImport(Principal principal, @PathVariable("importId") String importId) {
+
+        WorkImport workImport = workService.findImport(principal.getName(), importId);
+
+        if (workImport == null) {
+            throw new IllegalArgumentException("Import " + importId + " not found.");
+        }
+
+        return WorkImportDTO.mapFromWorkImportEntity(workImport);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> errorHandler(Exception exc) {
+        LOGGER.error(exc.getMessage(), exc);
+        return new ResponseEntity<>(exc.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+}
@@ -0,0 +1,66 @@
+package minutes.tracker.app.controllers;
+
+
+import minutes.tracker.app.dto.MinutesSeriesDTO;
+import minutes.tracker.app.model.TotalsPeriod;
+import minutes.tracker.app.services.DailyMinutesService;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ *
+ *  REST service for the minutes totals of the currently logged in user, per day, week or month.
+ *
+ */
+@Controller
+@RequestMapping("work/totals")
+public class WorkTotalsController {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkTotalsController.class);
+
+    @Autowired
+    private DailyMinutesService dailyMinutesService;
+
+    /**
+     *
+     * the total minutes of the current user per period, in a range of dates.
+     *
+     * @param principal - the current logged in user
+     * @param fromDate - from this date, including
+     * @param toDate - until this date, including
+     * @param period - day (default), week or month
+     * @return - @see MinutesSeriesDTO with one total per period, including the periods without works
+     */
+    @ResponseBody
+    @ResponseStatus(HttpStatus.OK)
+    @RequestMapping(method = RequestMethod.GET)
+    public MinutesSeriesDTO findTotals(
+            Principal principal,
+            @RequestParam(value = "fromDate") @DateTimeFormat(pattern = "yyyy/MM/dd") Date fromDate,
+            @RequestParam(value = "toDate") @DateTimeFormat(pattern = "yyyy/MM/dd") Date toDate,
+            @RequestParam(value = "period", defaultValue = "day") String period) {
+
+        TotalsPeriod totalsPeriod = TotalsPeriod.valueOf(period.toUpperCase());
+
+        Map<Date, Long> totals = dailyMinutesService.findMinutesByPeriod(principal.getName(), fromDate, toDate, totalsPeriod);
+
+        return MinutesSeriesDTO.mapFromTotals(totalsPeriod.name().toLowerCase(), totals);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> errorHandler(Exception exc) {
+        LOGGER.error(exc.getMessage(), exc);
+        return new ResponseEntity<>(exc.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+}
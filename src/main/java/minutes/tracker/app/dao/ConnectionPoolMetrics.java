@@ -0,0 +1,132 @@
+package minutes.tracker.app.dao;
+
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Saturation metrics of the JDBC connection pools: active, idle and total connections, the threads waiting for a
+ * connection, and how long they waited. The pools report to it through the HikariCP metrics tracker hook.
+ *
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final Map<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public MetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetrics poolMetrics = new PoolMetrics(poolStats);
+        pools.put(poolName, poolMetrics);
+        return poolMetrics.tracker;
+    }
+
+    /**
+     *
+     * @return the metrics of each pool, by pool name
+     */
+    public Map<String, PoolMetrics> getPools() {
+        return Collections.unmodifiableMap(pools);
+    }
+
+    /**
+     * the metrics of one connection pool
+     */
+    public static class PoolMetrics {
+
+        private final PoolStats poolStats;
+
+        private final AtomicLong acquisitions = new AtomicLong();
+        private final AtomicLong acquisitionNanos = new AtomicLong();
+        private final AtomicLong maxAcquisitionNanos = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong usageMillis = new AtomicLong();
+
+        private final MetricsTracker tracker = new MetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.incrementAndGet();
+                acquisitionNanos.addAndGet(elapsedAcquiredNanos);
+                maxAcquisitionNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.addAndGet(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+
+        private PoolMetrics(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        public int getActiveConnections() {
+            return poolStats.getActiveConnections();
+        }
+
+        public int getIdleConnections() {
+            return poolStats.getIdleConnections();
+        }
+
+        public int getTotalConnections() {
+            return poolStats.getTotalConnections();
+        }
+
+        /**
+         * @return the number of threads waiting for a connection
+         */
+        public int getPendingThreads() {
+            return poolStats.getPendingThreads();
+        }
+
+        /**
+         * @return the number of connections handed out by the pool
+         */
+        public long getAcquisitionCount() {
+            return acquisitions.get();
+        }
+
+        /**
+         * @return the total time spent waiting for a connection, in milliseconds
+         */
+        public double getAcquisitionWaitMillis() {
+            return acquisitionNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return the longest wait for a connection, in milliseconds
+         */
+        public double getMaxAcquisitionWaitMillis() {
+            return maxAcquisitionNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * @return the number of connection requests that failed because the acquisition timeout was reached
+         */
+        public long getTimeoutCount() {
+            return timeouts.get();
+        }
+
+        /**
+         * @return the total time the connections were borrowed from the pool, in milliseconds
+         */
+        public long getUsageMillis() {
+            return usageMillis.get();
+        }
+    }
+}
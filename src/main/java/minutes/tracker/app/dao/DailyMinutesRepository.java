@@ -0,0 +1,190 @@
+package minutes.tracker.app.dao;
+
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import minutes.tracker.app.model.DailyMinutes;
+import minutes.tracker.app.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ *
+ * Repository class for the DailyMinutes entity
+ *
+ */
+@Repository
+public class DailyMinutesRepository {
+
+    private static final String ADD_MINUTES_SQL = "update USER_DAILY_MINUTES " +
+            "set minutes = minutes + ?, version = version + 1 where user_id = ? and day = ?";
+
+    private static final String INSERT_SQL = "insert into USER_DAILY_MINUTES " +
+            "(id, UUID_HIGH, UUID_LOW, version, day, minutes, user_id) values (?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     *
+     * adds minutes to the existing daily totals of a user, with one batch of "minutes = minutes + ?" updates: the
+     * additions of concurrent transactions to the same day are applied one after the other, none is lost
+     *
+     * @param user - the user
+     * @param minutesByDay - the minutes to add per day, the days as returned by DailyMinutes.dayOf
+     * @return the minutes of the days that have no total yet, nothing was added to them
+     */
+    public Map<Date, Long> addToExistingDays(User user, Map<Date, Long> minutesByDay) {
+        List<Map.Entry<Date, Long>> entries = new ArrayList<>(minutesByDay.entrySet());
+
+        int[] updated = em.unwrap(Session.class).doReturningWork((connection) -> {
+            try (PreparedStatement update = connection.prepareStatement(ADD_MINUTES_SQL)) {
+                for (Map.Entry<Date, Long> entry : entries) {
+                    update.setLong(1, entry.getValue());
+                    update.setLong(2, user.getId());
+                    update.setDate(3, new java.sql.Date(entry.getKey().getTime()));
+                    update.addBatch();
+                }
+                return update.executeBatch();
+            }
+        });
+
+        Map<Date, Long> missing = new TreeMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (updated[i] == 0) {
+                missing.put(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     *
+     * inserts the daily totals of days that have none yet, in one batch
+     *
+     * @param user - the user
+     * @param minutesByDay - the minutes of the new totals, the days as returned by DailyMinutes.dayOf
+     * @return false if a concurrent transaction inserted the total of one of the days first - nothing is inserted
+     * then, and the minutes can be added to the existing totals instead
+     */
+    public boolean insertDays(User user, Map<Date, Long> minutesByDay) {
+        Session session = em.unwrap(Session.class);
+
+        List<DailyMinutes> created = new ArrayList<>(minutesByDay.size());
+        minutesByDay.forEach((day, minutes) -> {
+            DailyMinutes dailyMinutes = new DailyMinutes(user, day, minutes);
+            UniqueInserts.assignIdentity(session, dailyMinutes);
+            created.add(dailyMinutes);
+        });
+
+        return session.doReturningWork((connection) -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                for (DailyMinutes dailyMinutes : created) {
+                    UUID uuid = dailyMinutes.getUuid();
+                    insert.setLong(1, dailyMinutes.getId());
+                    insert.setLong(2, uuid.getMostSignificantBits());
+                    insert.setLong(3, uuid.getLeastSignificantBits());
+                    insert.setLong(4, dailyMinutes.getVersion());
+                    insert.setDate(5, new java.sql.Date(dailyMinutes.getDay().getTime()));
+                    insert.setLong(6, dailyMinutes.getMinutes());
+                    insert.setLong(7, user.getId());
+                    insert.addBatch();
+                }
+
+                return UniqueInserts.executeUnlessDuplicate(connection, insert);
+            }
+        });
+    }
+
+    /**
+     *
+     * finds the daily totals of a user in a range of days, without loading the user
+     *
+     * @param username - the user
+     * @param fromDay - from this day, including
+     * @param toDay - until this day, including
+     * @return rows with the day and the total minutes, ordered by day - days without works are not returned
+     */
+    public List<Object[]> findUserMinutesByDay(String username, Date fromDay, Date toDay) {
+        return em.createQuery("select d.day, d.minutes from DailyMinutes d where d.user.username = :username " +
+                "and d.day >= :fromDay and d.day <= :toDay order by d.day", Object[].class)
+                .setParameter("username", username)
+                .setParameter("fromDay", DailyMinutes.dayOf(fromDay))
+                .setParameter("toDay", DailyMinutes.dayOf(toDay))
+                .getResultList();
+    }
+
+    /**
+     *
+     * finds the daily totals of all users in a range of days
+     *
+     * @param fromDay - from this day, including, or null for no lower bound
+     * @param toDay - until this day, including, or null for no upper bound
+     * @return the daily totals in the range
+     */
+    public List<DailyMinutes> findDays(Date fromDay, Date toDay) {
+        TypedQuery<DailyMinutes> query = em.createQuery("select d from DailyMinutes d where 1 = 1"
+                + (fromDay != null ? " and d.day >= :fromDay" : "")
+                + (toDay != null ? " and d.day <= :toDay" : ""), DailyMinutes.class);
+
+        if (fromDay != null) {
+            query.setParameter("fromDay", DailyMinutes.dayOf(fromDay));
+        }
+        if (toDay != null) {
+            query.setParameter("toDay", DailyMinutes.dayOf(toDay));
+        }
+
+        return query.getResultList();
+    }
+
+    /**
+     *
+     * sums the minutes of the works of all users in a range of days, directly from the WORKS table
+     *
+     * @param fromDay - from this day, including, or null for no lower bound
+     * @param toDay - until this day, including, or null for no upper bound
+     * @return rows with the user id, the day and the total minutes
+     */
+    public List<Object[]> sumWorkMinutesByUserAndDay(Date fromDay, Date toDay) {
+        TypedQuery<Object[]> query = em.createQuery("select w.user.id, cast(w.date as date), sum(w.minutes) from Work w where 1 = 1"
+                + (fromDay != null ? " and w.date >= :fromDay" : "")
+                + (toDay != null ? " and w.date < :afterToDay" : "")
+                + " group by w.user.id, cast(w.date as date)", Object[].class);
+
+        if (fromDay != null) {
+            query.setParameter("fromDay", DailyMinutes.dayOf(fromDay));
+        }
+        if (toDay != null) {
+            Calendar afterToDay = Calendar.getInstance();
+            afterToDay.setTime(DailyMinutes.dayOf(toDay));
+            afterToDay.add(Calendar.DAY_OF_MONTH, 1);
+            query.setParameter("afterToDay", afterToDay.getTime());
+        }
+
+        return query.getResultList();
+    }
+
+    public void save(DailyMinutes dailyMinutes) {
+        em.persist(dailyMinutes);
+    }
+
+    public void delete(DailyMinutes dailyMinutes) {
+        em.remove(dailyMinutes);
+    }
+
+    public User getUserReference(Long userId) {
+        return em.getReference(User.class, userId);
+    }
+}
@@ -0,0 +1,183 @@
+package minutes.tracker.app.dao;
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ *
+ * Bounded in-process cache that evicts the least recently used entry once it is full, and counts its hits, misses
+ * and evictions. Entries can optionally expire a fixed time after they were put in the cache.
+ *
+ * All the operations are synchronized, so the cache is meant for small values that are cheap to copy.
+ *
+ * @param <K> - the key type
+ * @param <V> - the value type
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final Map<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public LruCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * @param maxSize - the maximum number of entries
+     * @param timeToLiveMillis - how long an entry stays valid after it is put, 0 if entries never expire
+     */
+    public LruCache(int maxSize, long timeToLiveMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive.");
+        }
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("The time to live cannot be negative.");
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean full = size() > LruCache.this.maxSize;
+                if (full) {
+                    evictions.incrementAndGet();
+                }
+                return full;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param key - the key of the cached value
+     * @return the cached value, or null if the key is not cached or has expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        (entry != null ? hits : misses).incrementAndGet();
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void put(K key, V value) {
+        long expiresAt = timeToLiveMillis > 0 ? System.currentTimeMillis() + timeToLiveMillis : Long.MAX_VALUE;
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     *
+     * removes all the entries with a matching value
+     *
+     * @param filter - selects the values to remove
+     * @return the number of removed entries
+     */
+    public synchronized int removeIf(Predicate<V> filter) {
+        int removed = 0;
+
+        for (Iterator<Entry<V>> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            if (filter.test(iterator.next().value)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     *
+     * removes all the entries with a matching key
+     *
+     * @param filter - selects the keys to remove
+     * @return the number of removed entries
+     */
+    public synchronized int removeKeysIf(Predicate<K> filter) {
+        int removed = 0;
+
+        for (Iterator<K> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+            if (filter.test(iterator.next())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * @return a copy of the cached values, including the expired ones not removed yet
+     */
+    public synchronized List<V> values() {
+        List<V> values = new ArrayList<>(entries.size());
+        entries.values().forEach((entry) -> values.add(entry.value));
+        return values;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the share of the lookups that were hits, 0 if there were no lookups yet
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
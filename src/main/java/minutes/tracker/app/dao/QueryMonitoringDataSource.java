@@ -0,0 +1,349 @@
+package minutes.tracker.app.dao;
+
+import org.apache.log4j.Logger;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * Datasource proxy that monitors the statements sent to the database:
+ *
+ * - counts the statements and the rows fetched, globally and for the current request, @see QueryStats
+ * - logs the statements slower than a threshold at WARN, with their bind values, and optionally their
+ *   PostgreSQL execution plan
+ * - logs every statement with its bind values at DEBUG, which replaces hibernate.show_sql
+ *
+ * Every execute call counts as one statement, and so does a whole JDBC batch: what is counted are the round trips.
+ * The global counts are used by the statement budgets of the integration tests.
+ *
+ */
+public class QueryMonitoringDataSource extends DelegatingDataSource {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryMonitoringDataSource.class);
+
+    private static final int MAX_BIND_LENGTH = 100;
+
+    // Hibernate prefixes the statements with a comment when hibernate.use_sql_comments is set
+    private static final Pattern SELECT = Pattern.compile("^\\s*(/\\*.*?\\*/\\s*)?select\\s.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final long slowQueryThresholdNanos;
+    private final boolean explainSlowQueries;
+
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder slowQueryCount = new LongAdder();
+
+    private volatile Boolean postgres;
+
+    /**
+     * @param targetDataSource - the datasource to monitor
+     * @param slowQueryThresholdMs - the statements that take at least this long are logged at WARN
+     * @param explainSlowQueries - if the execution plan of the slow selects is logged, only on PostgreSQL
+     */
+    public QueryMonitoringDataSource(DataSource targetDataSource, long slowQueryThresholdMs, boolean explainSlowQueries) {
+        super(targetDataSource);
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs);
+        this.explainSlowQueries = explainSlowQueries;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return monitoredConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return monitoredConnection(super.getConnection(username, password));
+    }
+
+    /**
+     * @return the number of statements executed since the datasource was created
+     */
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    /**
+     * @return the number of rows fetched from result sets since the datasource was created
+     */
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    /**
+     * @return the number of statements slower than the threshold since the datasource was created
+     */
+    public long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+
+    private Connection monitoredConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return invokeIdentity(proxy, method, args);
+            }
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                // the interface returned by the method: Statement, PreparedStatement or CallableStatement
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{method.getReturnType()},
+                        new StatementHandler((Statement) result, (Connection) proxy, target, sql));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+        private final Connection targetConnection;
+        private String sql;
+
+        private Object[] binds = new Object[8];
+        private int bindCount;
+        private int batchSize;
+
+        StatementHandler(Statement target, Connection connection, Connection targetConnection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.targetConnection = targetConnection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return invokeIdentity(proxy, method, args);
+            }
+            String name = method.getName();
+
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(binds, null);
+                bindCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null && args.length == 1) {
+                    sql = (String) args[0];
+                }
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("getResultSet")) {
+                return monitoredResultSet((ResultSet) invokeTarget(target, method, args), (Statement) proxy);
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            QueryStats stats = QueryStats.current();
+            long startNanos = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } finally {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                statementCount.increment();
+                if (stats != null) {
+                    stats.recordStatement(elapsedNanos);
+                }
+                log(executedSql, elapsedNanos);
+                batchSize = 0;
+            }
+            return result instanceof ResultSet ? monitoredResultSet((ResultSet) result, (Statement) proxy) : result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private void log(String executedSql, long elapsedNanos) {
+            boolean slow = elapsedNanos >= slowQueryThresholdNanos;
+            if (slow) {
+                slowQueryCount.increment();
+            }
+            if (!slow && !LOGGER.isDebugEnabled()) {
+                return;
+            }
+            StringBuilder message = new StringBuilder(slow ? "Slow query (" : "Query (")
+                    .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms");
+            if (batchSize > 0) {
+                message.append(", batch of ").append(batchSize);
+            }
+            message.append("): ").append(executedSql);
+            if (bindCount > 0) {
+                message.append(" | binds: ");
+                appendBinds(message);
+            }
+            if (slow) {
+                LOGGER.warn(message);
+                if (explainSlowQueries && executedSql != null && SELECT.matcher(executedSql).matches()) {
+                    explain(executedSql);
+                }
+            } else {
+                LOGGER.debug(message);
+            }
+        }
+
+        private void appendBinds(StringBuilder message) {
+            message.append('[');
+            for (int i = 0; i < bindCount; i++) {
+                if (i > 0) {
+                    message.append(", ");
+                }
+                message.append(i + 1).append('=');
+                Object value = binds[i];
+                if (value instanceof String) {
+                    String text = (String) value;
+                    message.append('\'').append(text.length() > MAX_BIND_LENGTH ?
+                            text.substring(0, MAX_BIND_LENGTH) + "..." : text).append('\'');
+                } else if (value instanceof byte[]) {
+                    message.append('<').append(((byte[]) value).length).append(" bytes>");
+                } else {
+                    message.append(value);
+                }
+            }
+            message.append(']');
+        }
+
+        /**
+         * logs the plan of a slow select, on the same connection so that it sees the same data. The explain runs
+         * inside a savepoint, so that if it fails the transaction of the request is not aborted.
+         */
+        private void explain(String executedSql) {
+            try {
+                if (!isPostgres(targetConnection)) {
+                    return;
+                }
+                Savepoint savepoint = targetConnection.getAutoCommit() ? null : targetConnection.setSavepoint();
+                try (PreparedStatement explain = targetConnection.prepareStatement("EXPLAIN " + executedSql)) {
+                    for (int i = 0; i < bindCount; i++) {
+                        explain.setObject(i + 1, binds[i]);
+                    }
+                    StringBuilder plan = new StringBuilder("Plan of the slow query:");
+                    try (ResultSet rows = explain.executeQuery()) {
+                        while (rows.next()) {
+                            plan.append('\n').append(rows.getString(1));
+                        }
+                    }
+                    LOGGER.warn(plan);
+                } catch (SQLException e) {
+                    if (savepoint != null) {
+                        targetConnection.rollback(savepoint);
+                    }
+                    throw e;
+                }
+                if (savepoint != null) {
+                    targetConnection.releaseSavepoint(savepoint);
+                }
+            } catch (SQLException e) {
+                LOGGER.debug("Could not explain the slow query: " + e.getMessage());
+            }
+        }
+    }
+
+    private ResultSet monitoredResultSet(ResultSet resultSet, Statement statement) {
+        if (resultSet == null) {
+            return null;
+        }
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                new ResultSetHandler(resultSet, statement, QueryStats.current()));
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Statement statement;
+        private final QueryStats stats;
+
+        ResultSetHandler(ResultSet target, Statement statement, QueryStats stats) {
+            this.target = target;
+            this.statement = statement;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return invokeIdentity(proxy, method, args);
+            }
+            String name = method.getName();
+            if (name.equals("getStatement")) {
+                return statement;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rowCount.increment();
+                if (stats != null) {
+                    stats.recordRow();
+                }
+            }
+            return result;
+        }
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        if (postgres == null) {
+            postgres = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        }
+        return postgres;
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class && !method.getName().equals("toString");
+    }
+
+    // a proxy is only equal to itself, the wrapped object does not know about it
+    private static Object invokeIdentity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+}
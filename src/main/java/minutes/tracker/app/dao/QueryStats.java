@@ -0,0 +1,84 @@
+package minutes.tracker.app.dao;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * The database work of one HTTP request: number of statements, time spent in the database and rows fetched.
+ *
+ * The stats of the current request are attached to the thread that runs it, and follow the request to the
+ * threads of the request executors, @see QueryStats#wrap(Runnable)
+ *
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder databaseNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    /**
+     * @return the stats attached to the current thread, null outside of a request
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param stats - the stats to attach to the current thread, null to detach them
+     */
+    public static void attach(QueryStats stats) {
+        if (stats != null) {
+            CURRENT.set(stats);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @param task - a task to run in another thread
+     * @return the task, running with the stats of the current thread attached
+     */
+    public static Runnable wrap(Runnable task) {
+        QueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return task;
+        }
+        return () -> {
+            QueryStats previous = CURRENT.get();
+            attach(stats);
+            try {
+                task.run();
+            } finally {
+                attach(previous);
+            }
+        };
+    }
+
+    void recordStatement(long nanos) {
+        statements.increment();
+        databaseNanos.add(nanos);
+    }
+
+    void recordRow() {
+        rows.increment();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getDatabaseNanos() {
+        return databaseNanos.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+}
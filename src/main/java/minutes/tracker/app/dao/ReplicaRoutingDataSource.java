@@ -0,0 +1,157 @@
+package minutes.tracker.app.dao;
+
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * DataSource that sends the read-only transactions to the replica databases (round robin), and everything else
+ * to the primary database.
+ *
+ * Replicas lag behind the primary, so after a user commits a read-write transaction, the read-only transactions of
+ * that same user keep going to the primary for a short window (read-your-writes). The user is the one authenticated
+ * in the Spring Security context.
+ *
+ * The routing decision is made when the connection is obtained, so this DataSource must be wrapped in a
+ * LazyConnectionDataSourceProxy: the transaction managers ask for a connection before the read-only flag of the
+ * transaction is published.
+ *
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA_PREFIX = "replica-";
+
+    /**
+     * the maximum number of users tracked for read-your-writes
+     */
+    private static final int MAX_RECENT_WRITERS = 10000;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * the users that committed a read-write transaction during the last sticky window
+     */
+    private final LruCache<String, Boolean> recentWriters;
+
+    /**
+     * bound to the transactions that are routed to a replica
+     */
+    private final Object replicaTransactionKey = new Object();
+
+    /**
+     * @param primary - the database that receives the writes
+     * @param replicas - the databases that receive the read-only transactions, can be empty
+     * @param stickyWindowMillis - how long the reads of a user go to the primary after one of its writes
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long stickyWindowMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.recentWriters = new LruCache<>(MAX_RECENT_WRITERS, stickyWindowMillis);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaKeys.add(REPLICA_PREFIX + i);
+            targets.put(REPLICA_PREFIX + i, replicas.get(i));
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriter(username);
+            return PRIMARY;
+        }
+
+        if (replicaKeys.isEmpty() || (username != null && recentWriters.get(username) != null)) {
+            return PRIMARY;
+        }
+
+        markReplicaTransaction();
+        return replicaKeys.get((nextReplica.getAndIncrement() & Integer.MAX_VALUE) % replicaKeys.size());
+    }
+
+    /**
+     * @return true if the current transaction reads from a replica, which can lag behind the primary once the sticky
+     * window of the user is over
+     */
+    public boolean isCurrentTransactionOnReplica() {
+        return TransactionSynchronizationManager.hasResource(replicaTransactionKey);
+    }
+
+    private void markReplicaTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive() &&
+                !TransactionSynchronizationManager.hasResource(replicaTransactionKey)) {
+            TransactionSynchronizationManager.bindResource(replicaTransactionKey, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(replicaTransactionKey);
+                }
+            });
+        }
+    }
+
+    /**
+     * once the current read-write transaction commits, the reads of the user go to the primary for a while
+     */
+    private void rememberWriter(String username) {
+        if (username != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(username, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * closes the primary and replica pools
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            closeIfPossible(replica);
+        }
+        closeIfPossible(primary);
+    }
+
+    private void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
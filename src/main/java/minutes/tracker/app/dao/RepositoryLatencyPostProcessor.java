@@ -0,0 +1,61 @@
+package minutes.tracker.app.dao;
+
+import minutes.tracker.app.services.LatencyHistogram;
+import minutes.tracker.app.services.LatencyMetrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Records the latency of the public methods of the @Repository beans, by wrapping them in a proxy.
+ *
+ * The repositories are injected by class, so they are proxied by subclassing.
+ *
+ */
+@Component
+public class RepositoryLatencyPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    @Autowired
+    public RepositoryLatencyPostProcessor(LatencyMetrics latencyMetrics) {
+        setProxyTargetClass(true);
+        this.advisor = new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forClassAnnotation(Repository.class),
+                new LatencyRecordingInterceptor(latencyMetrics));
+    }
+
+    private static class LatencyRecordingInterceptor implements MethodInterceptor {
+
+        private final LatencyMetrics latencyMetrics;
+        private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+        LatencyRecordingInterceptor(LatencyMetrics latencyMetrics) {
+            this.latencyMetrics = latencyMetrics;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long startNanos = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                histogramOf(invocation).recordSince(startNanos);
+            }
+        }
+
+        private LatencyHistogram histogramOf(MethodInvocation invocation) {
+            return histograms.computeIfAbsent(invocation.getMethod(), (method) -> latencyMetrics.histogram(
+                    LatencyMetrics.REPOSITORY_CALLS,
+                    invocation.getThis().getClass().getSimpleName() + "." + method.getName()));
+        }
+    }
+
+}
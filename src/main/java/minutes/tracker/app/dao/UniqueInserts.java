@@ -0,0 +1,63 @@
+package minutes.tracker.app.dao;
+
+
+import minutes.tracker.app.model.AbstractEntity;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ *
+ * Inserts of rows with a unique key that a concurrent transaction can insert first, sent with JDBC in the current
+ * transaction.
+ *
+ * The batch is executed under a savepoint: if a row violates a unique constraint, the transaction is rolled back to
+ * the savepoint and stays usable, so the caller can read the row inserted by the other transaction and go on.
+ *
+ */
+final class UniqueInserts {
+
+    private UniqueInserts() {
+    }
+
+    /**
+     * gives an entity to insert with JDBC an id from its Hibernate sequence, the same one as em.persist would use
+     *
+     * @param session - the session of the current transaction
+     * @param entity - the entity to insert
+     */
+    static void assignIdentity(Session session, AbstractEntity entity) {
+        SessionImplementor sessionImplementor = (SessionImplementor) session;
+        Long id = (Long) sessionImplementor.getFactory()
+                .getIdentifierGenerator(entity.getClass().getName())
+                .generate(sessionImplementor, entity);
+        entity.assignInsertedIdentity(id);
+    }
+
+    /**
+     * @param connection - the connection of the current transaction
+     * @param batch - the inserts, added to the batch of the statement
+     * @return false if a row violated a unique constraint - nothing is inserted then
+     */
+    static boolean executeUnlessDuplicate(Connection connection, PreparedStatement batch) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+
+        try {
+            batch.executeBatch();
+        } catch (SQLException e) {
+            // class 23 is integrity constraint violation, the rows are valid so it can only be a duplicate key
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            return false;
+        }
+
+        connection.releaseSavepoint(savepoint);
+        return true;
+    }
+}
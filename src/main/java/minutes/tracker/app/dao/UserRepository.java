@@ -2,6 +2,8 @@ package minutes.tracker.app.dao;
 
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import minutes.tracker.app.model.User;
 
@@ -17,16 +19,51 @@ import java.util.List;
 @Repository
 public class UserRepository {
 
+    /**
+     * the maximum number of users kept in the users cache
+     */
+    public static final int USER_CACHE_SIZE = 1000;
+
     @PersistenceContext
     private EntityManager em;
 
     /**
-     * finds a user given its username
+     * detached snapshots of the recently looked up users, by username
+     */
+    private final LruCache<String, User> userCache = new LruCache<>(USER_CACHE_SIZE);
+
+    /**
+     * finds a user given its username, from the users cache if possible.
+     *
+     * The returned user is not attached to the persistence context, so it can be read and referenced by other
+     * entities, but changes made to it are not saved. Use #loadUserByUsername(String) to modify a user.
      *
      * @param username - the username of the searched user
      * @return  a matching user, or null if no user found.
      */
     public User findUserByUsername(String username) {
+        User cached = userCache.get(username);
+
+        if (cached != null) {
+            return cached.detachedCopy();
+        }
+
+        User user = loadUserByUsername(username);
+
+        if (user != null) {
+            userCache.put(username, user.detachedCopy());
+        }
+
+        return user;
+    }
+
+    /**
+     * finds a user given its username in the database, bypassing the users cache
+     *
+     * @param username - the username of the searched user
+     * @return  a matching user attached to the persistence context, or null if no user found.
+     */
+    public User loadUserByUsername(String username) {
 
         List<User> users = em.createNamedQuery(User.FIND_BY_USERNAME, User.class)
                 .setParameter("username", username)
@@ -37,13 +74,45 @@ public class UserRepository {
 
     /**
      *
-     * find the total minutes that a given user has consumed so far in ongoing day
+     * removes a user from the users cache, both right away and once the current transaction completes, so that a
+     * concurrent lookup cannot cache the data from before the commit.
+     *
+     * @param username - the user that is being created or modified
+     */
+    public void evictUser(String username) {
+        userCache.remove(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.remove(username);
+                }
+            });
+        }
+    }
+
+    /**
+     *
+     * @return the users cache, to read its hit and miss counters
+     */
+    public LruCache<String, User> getUserCache() {
+        return userCache;
+    }
+
+    /**
+     *
+     * find the total minutes that a given user has consumed so far in ongoing day, from the daily minutes rollup
      *
      * @param username
-     * @return the total number of minutes for the user for today
+     * @return the total number of minutes for the user for today, or null if there are no works today
      */
     public Long findTodaysMinutesForUser(String username) {
-        return (Long) em.createNamedQuery(User.COUNT_TODAYS_MINUTES).setParameter("username", username).getSingleResult();
+        List<Long> minutes = em.createNamedQuery(User.COUNT_TODAYS_MINUTES, Long.class)
+                .setParameter("username", username)
+                .getResultList();
+
+        return minutes.isEmpty() ? null : minutes.get(0);
     }
 
     /**
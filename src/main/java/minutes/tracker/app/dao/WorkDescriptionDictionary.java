@@ -0,0 +1,159 @@
+package minutes.tracker.app.dao;
+
+
+import minutes.tracker.app.model.DescriptionFilter;
+import minutes.tracker.app.model.DescriptionMatch;
+import minutes.tracker.app.model.WorkDescription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * The description catalog of one user, in memory: the entries by id and by text, and a trigram index of their
+ * lower case texts for the description searches.
+ *
+ * The trigram index maps each sequence of 3 characters of the lower case texts to the entries that contain it. The
+ * texts are padded with two markers in front, so that the prefix searches use the trigrams of the start of the text.
+ * A search looks up the trigrams of the searched text, intersects their entries, and checks the text of the remaining
+ * entries - the texts shorter than a trigram are checked against all the entries, the catalog of a user is small.
+ *
+ * The entries are never modified, so the dictionary only grows.
+ *
+ * A dictionary read on the primary has all the entries committed before it was read, one read on a replica can
+ * miss the ones that had not reached the replica yet.
+ *
+ */
+public final class WorkDescriptionDictionary {
+
+    private static final char PADDING = '\u0000';
+
+    private final boolean readOnPrimary;
+
+    private final Map<Long, WorkDescription> byId = new HashMap<>();
+    private final Map<String, WorkDescription> byText = new HashMap<>();
+    private final Map<Long, String> normalizedTexts = new HashMap<>();
+    private final Map<Long, Set<Long>> idsByTrigram = new HashMap<>();
+
+    /**
+     * @param readOnPrimary - true if the entries are read on the primary database
+     */
+    WorkDescriptionDictionary(boolean readOnPrimary) {
+        this.readOnPrimary = readOnPrimary;
+    }
+
+    /**
+     * @return true if the entries were read on the primary, and the dictionary misses no committed entry of this node
+     */
+    boolean isReadOnPrimary() {
+        return readOnPrimary;
+    }
+
+    /**
+     * @param description - an entry of the catalog, ignored if already known
+     */
+    synchronized void add(WorkDescription description) {
+        if (byId.containsKey(description.getId())) {
+            return;
+        }
+
+        byId.put(description.getId(), description);
+        // two concurrent saves may have added the same text twice, the first one is reused
+        byText.putIfAbsent(description.getText(), description);
+
+        String normalized = DescriptionFilter.normalize(description.getText());
+        normalizedTexts.put(description.getId(), normalized);
+
+        for (long trigram : trigrams(pad(normalized))) {
+            idsByTrigram.computeIfAbsent(trigram, (key) -> new HashSet<>()).add(description.getId());
+        }
+    }
+
+    /**
+     * @return the entry with the given id, or null if unknown
+     */
+    synchronized WorkDescription find(Long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return the entry with exactly the given text, or null if unknown
+     */
+    synchronized WorkDescription find(String text) {
+        return byText.get(text);
+    }
+
+    /**
+     * @param filter - the description criteria of a search
+     * @param limit - the maximum number of entries
+     * @return the ids of the entries whose text matches, or null if there are more than the limit
+     */
+    synchronized List<Long> matching(DescriptionFilter filter, int limit) {
+        String text = filter.getText();
+        long[] trigrams = filter.getMatch() == DescriptionMatch.PREFIX ? trigrams(pad(text)) : trigrams(text);
+
+        Set<Long> candidates = byId.keySet();
+        List<Set<Long>> postings = new ArrayList<>(trigrams.length);
+
+        if (trigrams.length > 0) {
+            for (long trigram : trigrams) {
+                Set<Long> ids = idsByTrigram.get(trigram);
+                if (ids == null) {
+                    return new ArrayList<>();
+                }
+                postings.add(ids);
+            }
+
+            // the rarest trigram first, the others are only probed
+            postings.sort(Comparator.comparingInt(Set::size));
+            candidates = postings.get(0);
+        }
+
+        List<Long> matching = new ArrayList<>();
+        for (Long id : candidates) {
+            if (containedInAll(postings, id) && filter.matches(normalizedTexts.get(id))) {
+                matching.add(id);
+                if (matching.size() > limit) {
+                    return null;
+                }
+            }
+        }
+
+        return matching;
+    }
+
+    private static boolean containedInAll(List<Set<Long>> postings, Long id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String pad(String normalized) {
+        return "" + PADDING + PADDING + normalized;
+    }
+
+    /**
+     * @return the distinct trigrams of a text, each one as the 3 chars packed in a long
+     */
+    static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+
+        long[] trigrams = new long[text.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+        }
+
+        return Arrays.stream(trigrams).distinct().toArray();
+    }
+}
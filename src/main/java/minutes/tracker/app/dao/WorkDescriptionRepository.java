@@ -0,0 +1,394 @@
+package minutes.tracker.app.dao;
+
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import minutes.tracker.app.model.DescriptionFilter;
+import minutes.tracker.app.model.DescriptionMatch;
+import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.WorkDescription;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Repository class for the WorkDescription entity, the description catalog of the users.
+ *
+ * The catalog of the recently active users is kept in memory, @see WorkDescriptionDictionary - the works are read
+ * with the ids of their descriptions and the texts are taken from the dictionary, so each distinct text is loaded and
+ * kept on the heap once per user. The dictionary of a user is loaded with one query on first use, and the entries
+ * created by a transaction are added to it once the transaction commits.
+ *
+ * The entries handed out are detached and shared between threads: they can be referenced by the works being saved,
+ * but must not be modified.
+ *
+ * The description searches select the works by the ids that the dictionary matches, @see #findMatchingDescriptions,
+ * so an entry missing from the dictionary would leave its works out of the results. The ids are only used when the
+ * dictionary misses no entry committed by this node:
+ *
+ * - the entries committed by this node are added to its cached dictionary, and a dictionary read while entries were
+ * being added is not kept
+ * - the dictionary was read on the primary: one read on a replica can miss the entries the replica did not have
+ * yet, the searches then check the texts in the database
+ *
+ * The entries committed by other nodes are not seen until the dictionary expires, after DICTIONARY_TIME_TO_LIVE_MILLIS:
+ * with several nodes, the searches can miss the works of descriptions created on another node for that long.
+ *
+ */
+@Repository
+public class WorkDescriptionRepository {
+
+    /**
+     * the maximum number of users whose dictionary is kept in memory
+     */
+    public static final int DICTIONARY_CACHE_SIZE = 1000;
+
+    /**
+     * how long a dictionary is used before it is read again, the longest that the entries created by other nodes can
+     * be missed by the searches
+     */
+    public static final long DICTIONARY_TIME_TO_LIVE_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * the number of times the new entries of a save are inserted, when concurrent transactions keep inserting some
+     * of the same texts first
+     */
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    private static final String INSERT_SQL = "insert into WORK_DESCRIPTIONS " +
+            "(id, UUID_HIGH, UUID_LOW, version, DESCRIPTION, user_id) values (?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    ReplicaRoutingDataSource routingDataSource;
+
+    private final LruCache<String, WorkDescriptionDictionary> dictionaries = new LruCache<>(DICTIONARY_CACHE_SIZE,
+            DICTIONARY_TIME_TO_LIVE_MILLIS);
+
+    /**
+     * counts the committed new entries of each user, so that a dictionary read while entries were being added is
+     * not kept
+     */
+    private final ConcurrentMap<String, AtomicLong> changes = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * finds the catalog entries of descriptions, and creates the ones the user never used before.
+     *
+     * The texts that are not in the dictionary are inserted in one JDBC batch, under a savepoint. A dictionary read
+     * on the primary only misses the entries created on other nodes: if one of the texts is among them, or a
+     * concurrent transaction inserted it in the meantime, the unique index on (user_id, DESCRIPTION) rejects the
+     * batch. It is then rolled back to the savepoint, the texts are looked up in the database, up to
+     * MAX_IDS_PER_STATEMENT per statement, and the ones still missing are inserted again. A dictionary read on a
+     * replica can miss more entries, the texts are looked up before the first insert then.
+     *
+     * @param user - the owner of the descriptions
+     * @param texts - the descriptions, as entered by the user
+     * @return the catalog entries with exactly those texts, by text
+     */
+    public Map<String, WorkDescription> findOrCreate(User user, Collection<String> texts) {
+        String username = user.getUsername();
+        Map<String, WorkDescription> pending = pendingDescriptions(username);
+        WorkDescriptionDictionary dictionary = findDictionary(username);
+
+        Map<String, WorkDescription> descriptions = new HashMap<>(texts.size() * 2);
+        List<String> missing = new ArrayList<>();
+
+        for (String text : new LinkedHashSet<>(texts)) {
+            WorkDescription description = pending.get(text);
+
+            if (description == null) {
+                description = dictionary.find(text);
+            }
+
+            if (description != null) {
+                descriptions.put(text, description);
+            } else {
+                missing.add(text);
+            }
+        }
+
+        for (int attempt = 1; !missing.isEmpty(); attempt++) {
+            if (attempt > 1 || !dictionary.isReadOnPrimary()) {
+                for (WorkDescription description : findByTexts(username, missing)) {
+                    descriptions.put(description.getText(), description);
+                    // the texts created by the current transaction were found above, these entries are committed
+                    dictionary.add(description);
+                }
+                missing.removeAll(descriptions.keySet());
+            }
+
+            if (missing.isEmpty()) {
+                break;
+            }
+
+            List<WorkDescription> created = insert(user, missing);
+
+            if (created != null) {
+                Map<String, WorkDescription> bound = bindPendingDescriptions(username);
+                for (WorkDescription description : created) {
+                    descriptions.put(description.getText(), description);
+                    bound.put(description.getText(), description);
+                }
+                afterCommit(username, created);
+                break;
+            }
+
+            if (attempt == MAX_INSERT_ATTEMPTS) {
+                throw new ConcurrencyFailureException("Descriptions of user " + username +
+                        " kept being created concurrently, giving up after " + attempt + " attempts.");
+            }
+        }
+
+        return descriptions;
+    }
+
+    private List<WorkDescription> findByTexts(String username, List<String> texts) {
+        List<WorkDescription> found = new ArrayList<>();
+
+        for (int start = 0; start < texts.size(); start += WorkRepository.MAX_IDS_PER_STATEMENT) {
+            found.addAll(em.createQuery("select d from WorkDescription d " +
+                    "where d.user.username = :username and d.text in :texts", WorkDescription.class)
+                    .setParameter("username", username)
+                    .setParameter("texts", texts.subList(start,
+                            Math.min(start + WorkRepository.MAX_IDS_PER_STATEMENT, texts.size())))
+                    .getResultList());
+        }
+
+        return found;
+    }
+
+    /**
+     * @return the inserted entries, or null if one of the texts was inserted by a concurrent transaction - nothing is
+     * inserted then
+     */
+    private List<WorkDescription> insert(User user, List<String> texts) {
+        Session session = em.unwrap(Session.class);
+
+        List<WorkDescription> created = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            WorkDescription description = new WorkDescription(user, text);
+            UniqueInserts.assignIdentity(session, description);
+            created.add(description);
+        }
+
+        return session.doReturningWork((connection) -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                for (WorkDescription description : created) {
+                    UUID uuid = description.getUuid();
+                    insert.setLong(1, description.getId());
+                    insert.setLong(2, uuid.getMostSignificantBits());
+                    insert.setLong(3, uuid.getLeastSignificantBits());
+                    insert.setLong(4, description.getVersion());
+                    insert.setString(5, description.getText());
+                    insert.setLong(6, user.getId());
+                    insert.addBatch();
+                }
+
+                return UniqueInserts.executeUnlessDuplicate(connection, insert) ? created : null;
+            }
+        });
+    }
+
+    /**
+     *
+     * finds the texts of catalog entries of a user, from the dictionary of the user if possible - the entries added
+     * by concurrent transactions since the dictionary was loaded are read from the database, up to
+     * WorkRepository.MAX_IDS_PER_STATEMENT per statement.
+     *
+     * @param username - the owner of the descriptions
+     * @param ids - the ids of the entries
+     * @return the texts, by id
+     */
+    public Map<Long, String> findTexts(String username, Collection<Long> ids) {
+        WorkDescriptionDictionary dictionary = findDictionary(username);
+        Map<String, WorkDescription> pending = pendingDescriptions(username);
+
+        Map<Long, String> texts = new HashMap<>(ids.size() * 2);
+        List<Long> missing = new ArrayList<>();
+
+        for (Long id : new LinkedHashSet<>(ids)) {
+            WorkDescription description = dictionary.find(id);
+            if (description != null) {
+                texts.put(id, description.getText());
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            pending.values().stream()
+                    .filter((description) -> missing.remove(description.getId()))
+                    .forEach((description) -> texts.put(description.getId(), description.getText()));
+        }
+
+        for (int start = 0; start < missing.size(); start += WorkRepository.MAX_IDS_PER_STATEMENT) {
+            List<WorkDescription> loaded = em.createQuery("select d from WorkDescription d where d.id in :ids",
+                    WorkDescription.class)
+                    .setParameter("ids", missing.subList(start,
+                            Math.min(start + WorkRepository.MAX_IDS_PER_STATEMENT, missing.size())))
+                    .getResultList();
+
+            for (WorkDescription description : loaded) {
+                texts.put(description.getId(), description.getText());
+                // without pending entries, only committed entries are visible
+                if (pending.isEmpty()) {
+                    dictionary.add(description);
+                }
+            }
+        }
+
+        return texts;
+    }
+
+    /**
+     *
+     * looks up a searched text in the description dictionary of a user
+     *
+     * @param username - the user searching
+     * @param text - the searched text
+     * @param match - how the text is matched
+     * @return the description criteria of the search, with the matching catalog entries if they are not too many to
+     * be bound to a statement, the dictionary was read on the primary, and the current transaction has not added
+     * entries to the catalog of the user - otherwise without entries, the texts are checked in the database
+     */
+    public DescriptionFilter findMatchingDescriptions(String username, String text, DescriptionMatch match) {
+        DescriptionFilter unrestricted = new DescriptionFilter(text, match, null);
+
+        // the entries of the current transaction are not in the dictionary yet, only the database can tell
+        if (!pendingDescriptions(username).isEmpty()) {
+            return unrestricted;
+        }
+
+        WorkDescriptionDictionary dictionary = findDictionary(username);
+
+        // a dictionary read on a replica can miss entries, the search would silently miss their works
+        if (!dictionary.isReadOnPrimary()) {
+            return unrestricted;
+        }
+
+        List<Long> descriptionIds = dictionary.matching(unrestricted, WorkRepository.MAX_IDS_PER_STATEMENT);
+        return descriptionIds != null ? new DescriptionFilter(text, match, descriptionIds) : unrestricted;
+    }
+
+    /**
+     *
+     * @return the dictionaries of the users, to read the hit ratio and eviction counters
+     */
+    public LruCache<String, WorkDescriptionDictionary> getDictionaries() {
+        return dictionaries;
+    }
+
+    private WorkDescriptionDictionary findDictionary(String username) {
+        WorkDescriptionDictionary dictionary = dictionaries.get(username);
+
+        if (dictionary != null) {
+            return dictionary;
+        }
+
+        long changesBefore = changesOf(username).get();
+        boolean pendingBefore = !pendingDescriptions(username).isEmpty();
+
+        List<WorkDescription> entries = em.createQuery("select d from WorkDescription d where d.user.username = :username",
+                WorkDescription.class)
+                .setParameter("username", username)
+                .getResultList();
+
+        WorkDescriptionDictionary loaded = new WorkDescriptionDictionary(!routingDataSource.isCurrentTransactionOnReplica());
+        entries.forEach(loaded::add);
+
+        synchronized (dictionaries) {
+            // otherwise entries were added while they were read, or the current transaction sees its own
+            // uncommitted entries: the dictionary is only used by this call
+            if (!pendingBefore && changesOf(username).get() == changesBefore) {
+                dictionaries.put(username, loaded);
+            }
+        }
+
+        return loaded;
+    }
+
+    private void afterCommit(String username, List<WorkDescription> descriptions) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    added(username, descriptions);
+                }
+            });
+        } else {
+            added(username, descriptions);
+        }
+    }
+
+    private void added(String username, List<WorkDescription> descriptions) {
+        WorkDescriptionDictionary dictionary;
+
+        synchronized (dictionaries) {
+            changesOf(username).incrementAndGet();
+            dictionary = dictionaries.get(username);
+        }
+
+        if (dictionary != null) {
+            descriptions.forEach(dictionary::add);
+        }
+    }
+
+    /**
+     * @return the entries of a user created by the current transaction, by text
+     */
+    private Map<String, WorkDescription> pendingDescriptions(String username) {
+        Map<String, Map<String, WorkDescription>> pending = currentPending();
+        Map<String, WorkDescription> descriptions = pending != null ? pending.get(username) : null;
+        return descriptions != null ? descriptions : Collections.emptyMap();
+    }
+
+    private Map<String, WorkDescription> bindPendingDescriptions(String username) {
+        Map<String, Map<String, WorkDescription>> pending = currentPending();
+
+        if (pending == null) {
+            pending = new HashMap<>();
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(WorkDescriptionRepository.this);
+                    }
+                });
+            }
+        }
+
+        return pending.computeIfAbsent(username, (key) -> new HashMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, WorkDescription>> currentPending() {
+        return (Map<String, Map<String, WorkDescription>>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private AtomicLong changesOf(String username) {
+        return changes.computeIfAbsent(username, (key) -> new AtomicLong());
+    }
+}
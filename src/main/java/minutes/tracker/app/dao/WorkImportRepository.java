@@ -0,0 +1,49 @@
+package minutes.tracker.app.dao;
+
+
+import org.springframework.stereotype.Repository;
+
+import minutes.tracker.app.model.WorkImport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ *
+ * Repository class for the WorkImport entity
+ *
+ */
+@Repository
+public class WorkImportRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * finds an import of a user given its key
+     *
+     * @param username - the user that started the import
+     * @param importKey - the key of the import
+     * @return  a matching import, or null if no import found.
+     */
+    public WorkImport findImport(String username, String importKey) {
+
+        List<WorkImport> imports = em.createNamedQuery(WorkImport.FIND_BY_KEY, WorkImport.class)
+                .setParameter("username", username)
+                .setParameter("importKey", importKey)
+                .getResultList();
+
+        return imports.size() == 1 ? imports.get(0) : null;
+    }
+
+    /**
+     *
+     * creates a new import
+     *
+     * @param workImport
+     */
+    public void save(WorkImport workImport) {
+        em.persist(workImport);
+    }
+}
@@ -2,19 +2,43 @@ package minutes.tracker.app.dao;
 
 
 import org.apache.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.model.DescriptionFilter;
+import minutes.tracker.app.model.DescriptionMatch;
 import minutes.tracker.app.model.Work;
 import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.WorkDescription;
+import minutes.tracker.app.model.WorkCursor;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Savepoint;
 import java.sql.Time;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -26,9 +50,27 @@ public class WorkRepository {
 
     private static final Logger LOGGER = Logger.getLogger(WorkRepository.class);
 
+    public static final int PAGE_SIZE = 10;
+
+    /**
+     * the maximum number of ids bound to a single statement
+     */
+    public static final int MAX_IDS_PER_STATEMENT = 500;
+
+    /**
+     * the number of rows fetched per round trip when scrolling through works
+     */
+    public static final int SCROLL_FETCH_SIZE = 500;
+
     @PersistenceContext
     EntityManager em;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    WorkDescriptionRepository workDescriptionRepository;
+
     /**
      *
      * counts the matching works, given the bellow criteria
@@ -38,9 +80,11 @@ public class WorkRepository {
      * @param toDate - search until this date, including
      * @param fromTime - search from this time, including
      * @param toTime - search to this time, including
+     * @param descriptionFilter - the description criteria, null to match any description
      * @return -  a list of matching works, or an empty collection if no match found
      */
-    public Long countWorksByDateTime(String username, Date fromDate, Date toDate, Time fromTime, Time toTime) {
+    public Long countWorksByDateTime(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                     DescriptionFilter descriptionFilter) {
 
         CriteriaBuilder cb = em.getCriteriaBuilder();
 
@@ -48,14 +92,97 @@ public class WorkRepository {
         CriteriaQuery<Long> cq = cb.createQuery(Long.class);
         Root<Work> countRoot = cq.from(Work.class);
         cq.select((cb.count(countRoot)));
-        cq.where(getCommonWhereCondition(cb, username, countRoot, fromDate, toDate, fromTime, toTime));
+        cq.where(getCommonWhereCondition(cb, username, countRoot, fromDate, toDate, fromTime, toTime,
+                descriptionFilter));
         Long resultsCount = em.createQuery(cq).getSingleResult();
 
-        LOGGER.info("Found " + resultsCount + " results.");
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Found " + resultsCount + " results.");
+        }
 
         return resultsCount;
     }
 
+    /**
+     *
+     * counts the matching works up to a limit, given the bellow criteria - the count stops at the limit, so the cost of
+     * the query is bounded no matter how many works match.
+     *
+     * The count is made by the database over a subquery limited to the given number of rows, so no rows are sent back
+     * only to be counted. JPQL has no subqueries in the from clause, so this is a native query.
+     *
+     * @param username - the currently logged in username
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param descriptionFilter - the description criteria, null to match any description
+     * @param limit - the maximum count
+     * @return -  the number of matching works, or the limit if there are more
+     */
+    public long countWorksByDateTimeUpTo(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                         DescriptionFilter descriptionFilter, int limit) {
+
+        StringBuilder sql = new StringBuilder("select count(*) from (select w.id from WORKS w " +
+                "join USERS u on u.id = w.user_id ");
+
+        if (descriptionFilter != null && descriptionFilter.getDescriptionIds() == null) {
+            sql.append("join WORK_DESCRIPTIONS d on d.id = w.description_id ");
+        }
+
+        sql.append("where u.username = :username and w.date >= :fromDate");
+
+        if (toDate != null) {
+            sql.append(" and w.date <= :toDate");
+        }
+        if (fromTime != null) {
+            sql.append(" and w.time >= :fromTime");
+        }
+        if (toTime != null) {
+            sql.append(" and w.time <= :toTime");
+        }
+
+        if (descriptionFilter != null) {
+            Collection<Long> descriptionIds = descriptionFilter.getDescriptionIds();
+
+            if (descriptionIds != null) {
+                sql.append(descriptionIds.isEmpty() ? " and 1 = 0" : " and w.description_id in (:descriptionIds)");
+            } else {
+                sql.append(descriptionFilter.getMatch() == DescriptionMatch.PREFIX ?
+                        " and position(:text in lower(d.description)) = 1" :
+                        " and position(:text in lower(d.description)) > 0");
+            }
+        }
+
+        sql.append(" limit :limit) limited");
+
+        Query query = em.createNativeQuery(sql.toString())
+                .setParameter("username", username)
+                .setParameter("fromDate", fromDate, TemporalType.DATE)
+                .setParameter("limit", limit);
+
+        if (toDate != null) {
+            query.setParameter("toDate", toDate, TemporalType.DATE);
+        }
+        if (fromTime != null) {
+            query.setParameter("fromTime", fromTime);
+        }
+        if (toTime != null) {
+            query.setParameter("toTime", toTime);
+        }
+        if (descriptionFilter != null) {
+            if (descriptionFilter.getDescriptionIds() != null) {
+                if (!descriptionFilter.getDescriptionIds().isEmpty()) {
+                    query.setParameter("descriptionIds", descriptionFilter.getDescriptionIds());
+                }
+            } else {
+                query.setParameter("text", descriptionFilter.getText());
+            }
+        }
+
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
     /**
      *
      * finds a list of works, given the bellow criteria
@@ -67,37 +194,230 @@ public class WorkRepository {
      * @param toTime - search to this time, including
      * @return -  a list of matching works, or an empty collection if no match found
      */
-    public List<Work> findWorksByDateTime(String username, Date fromDate, Date toDate,
-                                          Time fromTime, Time toTime, int pageNumber) {
+    public List<WorkDTO> findWorksByDateTime(String username, Date fromDate, Date toDate,
+                                             Time fromTime, Time toTime, int pageNumber) {
+        return findWorksByDateTime(username, fromDate, toDate, fromTime, toTime, null, pageNumber, PAGE_SIZE);
+    }
+
+    /**
+     *
+     * finds a list of works, given the bellow criteria. The works are selected directly into DTOs, so no entities
+     * (and no users) are loaded in the persistence context - the descriptions come from the description dictionary
+     * of the user, @see WorkDescriptionRepository
+     *
+     * @param username - the currently logged in username
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param descriptionFilter - the description criteria, null to match any description
+     * @param pageNumber - the page number, the page starts at (pageNumber - 1) * PAGE_SIZE
+     * @param maxResults - the maximum number of works to return, can go past the end of the page
+     * @return -  a list of matching works, or an empty collection if no match found
+     */
+    public List<WorkDTO> findWorksByDateTime(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                             DescriptionFilter descriptionFilter, int pageNumber, int maxResults) {
 
         CriteriaBuilder cb = em.getCriteriaBuilder();
 
         // the actual search query that returns one page of results
-        CriteriaQuery<Work> searchQuery = cb.createQuery(Work.class);
+        CriteriaQuery<Object[]> searchQuery = cb.createQuery(Object[].class);
+        Root<Work> searchRoot = searchQuery.from(Work.class);
+        searchQuery.multiselect(getWorkSelection(searchRoot));
+        searchQuery.where(getCommonWhereCondition(cb, username, searchRoot, fromDate, toDate, fromTime, toTime,
+                descriptionFilter));
+
+        searchQuery.orderBy(getSearchOrder(cb, searchRoot, false));
+
+        TypedQuery<Object[]> filterQuery = em.createQuery(searchQuery)
+                .setFirstResult((pageNumber - 1) * PAGE_SIZE)
+                .setMaxResults(maxResults);
+
+        return toWorkDTOs(username, filterQuery.getResultList());
+    }
+
+    /**
+     *
+     * finds a list of works next to a cursor position, given the bellow criteria. Instead of skipping rows with an
+     * offset, the cursor key is used as lower bound, so the cost of the query does not depend on how deep the page is.
+     * The works are selected directly into DTOs.
+     *
+     * @param username - the currently logged in username
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param descriptionFilter - the description criteria, null to match any description
+     * @param cursor - the position to start from, the works are returned in the search order in both directions
+     * @param maxResults - the maximum number of works to return
+     * @return -  a list of matching works, or an empty collection if no match found
+     */
+    public List<WorkDTO> findWorksByDateTimeFromCursor(String username, Date fromDate, Date toDate, Time fromTime,
+                                                       Time toTime, DescriptionFilter descriptionFilter,
+                                                       WorkCursor cursor, int maxResults) {
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<Object[]> searchQuery = cb.createQuery(Object[].class);
         Root<Work> searchRoot = searchQuery.from(Work.class);
-        searchQuery.select(searchRoot);
-        searchQuery.where(getCommonWhereCondition(cb, username, searchRoot, fromDate, toDate, fromTime, toTime));
+        searchQuery.multiselect(getWorkSelection(searchRoot));
+
+        List<Predicate> predicates = new ArrayList<>();
+        Collections.addAll(predicates, getCommonWhereCondition(cb, username, searchRoot, fromDate, toDate, fromTime, toTime,
+                descriptionFilter));
 
-        List<Order> orderList = new ArrayList();
-        orderList.add(cb.desc(searchRoot.get("date")));
-        orderList.add(cb.asc(searchRoot.get("time")));
-        searchQuery.orderBy(orderList);
+        boolean reversed = cursor.getDirection() == WorkCursor.Direction.BEFORE;
+        predicates.add(getCursorCondition(cb, searchRoot, cursor, reversed));
 
-        TypedQuery<Work> filterQuery = em.createQuery(searchQuery)
-                .setFirstResult((pageNumber - 1) * 10)
-                .setMaxResults(10);
+        searchQuery.where(predicates.toArray(new Predicate[]{}));
+        searchQuery.orderBy(getSearchOrder(cb, searchRoot, reversed));
 
-        return filterQuery.getResultList();
+        List<WorkDTO> works = toWorkDTOs(username, em.createQuery(searchQuery)
+                .setMaxResults(maxResults)
+                .getResultList());
+
+        if (reversed) {
+            works = new ArrayList<>(works);
+            Collections.reverse(works);
+        }
+
+        return works;
     }
 
     /**
-     * Delete a work, given its identifier
      *
-     * @param deletedWorkId - the id of the work to be deleted
+     * reads all the works of a user in a date range, ordered by date and time, and passes them one by one to a
+     * consumer as they are read from the database.
+     *
+     * The works are read with a forward-only cursor on a stateless session, outside of the current persistence
+     * context - nothing is kept in memory after a work is consumed, so any number of works can be read. The
+     * descriptions are joined in the query: the rows are read on the connection of the stateless session only, and
+     * none is missed by a stale description dictionary.
+     *
+     * @param username - the currently logged in username
+     * @param fromDate - read from this date, including
+     * @param toDate - read until this date, including
+     * @param consumer - called for each work, in order
      */
-    public void delete(Long deletedWorkId) {
-        Work delete = em.find(Work.class, deletedWorkId);
-        em.remove(delete);
+    public void scrollWorksByDate(String username, Date fromDate, Date toDate, Consumer<WorkDTO> consumer) {
+
+        StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+        Transaction transaction = session.beginTransaction();
+
+        try {
+            ScrollableResults rows = session.createQuery(
+                    "select w.id, w.date, w.time, d.text, w.minutes from Work w join w.description d " +
+                    "where w.user.username = :username and w.date >= :fromDate and w.date <= :toDate " +
+                    "order by w.date, w.time, w.id")
+                    .setParameter("username", username)
+                    .setParameter("fromDate", fromDate)
+                    .setParameter("toDate", toDate)
+                    .setReadOnly(true)
+                    .setFetchSize(SCROLL_FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            try {
+                while (rows.next()) {
+                    consumer.accept(new WorkDTO(rows.getLong(0), rows.getDate(1), rows.getDate(2),
+                            rows.getString(3), rows.getLong(4)));
+                }
+            } finally {
+                rows.close();
+            }
+
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            session.close();
+        }
+    }
+
+    /**
+     *
+     * Delete a set of works of a given user with set-based statements, up to MAX_IDS_PER_STATEMENT works per statement.
+     * Works that don't exist or belong to another user are ignored.
+     *
+     * The works are deleted directly in the database, so this should not be used for works already loaded in the
+     * current persistence context.
+     *
+     * Each deleted work is returned by one delete only, so that its minutes are subtracted once. The owned works are
+     * selected for update: a concurrent delete of the same works waits for this transaction, and then no longer finds
+     * them. If the database did not wait and the bulk delete removes fewer works than selected, it is rolled back to a
+     * savepoint and the works are deleted one by one, in one batch, to tell which ones this transaction removed.
+     *
+     * @param username - the owner of the works
+     * @param deletedWorkIds - the ids of the works to be deleted
+     * @return - the works that where actually deleted, as they where before being deleted
+     */
+    public List<WorkDTO> deleteUserWorks(String username, Collection<Long> deletedWorkIds) {
+
+        List<Long> ids = new ArrayList<>(deletedWorkIds);
+        List<WorkDTO> deletedWorks = new ArrayList<>();
+
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_STATEMENT) {
+            List<Long> batch = ids.subList(start, Math.min(start + MAX_IDS_PER_STATEMENT, ids.size()));
+
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Object[]> ownedQuery = cb.createQuery(Object[].class);
+            Root<Work> ownedRoot = ownedQuery.from(Work.class);
+            ownedQuery.multiselect(getWorkSelection(ownedRoot));
+            ownedQuery.where(ownedRoot.get("id").in(batch),
+                    cb.equal(ownedRoot.join("user").<String>get("username"), username));
+
+            List<WorkDTO> ownedWorks = toWorkDTOs(username, em.createQuery(ownedQuery)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList());
+
+            if (!ownedWorks.isEmpty()) {
+                deletedWorks.addAll(deleteOwnedWorks(ownedWorks));
+            }
+        }
+
+        return deletedWorks;
+    }
+
+    /**
+     * @return the works removed by the current transaction - without the ones that a concurrent transaction deleted
+     * first, if the database did not wait for it on the lock of the select
+     */
+    private List<WorkDTO> deleteOwnedWorks(List<WorkDTO> ownedWorks) {
+        List<Long> ids = ownedWorks.stream().map(WorkDTO::getId).collect(Collectors.toList());
+        Session session = em.unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+
+        int deleted = em.createQuery("delete from Work w where w.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+
+        if (deleted == ids.size()) {
+            session.doWork((connection) -> connection.releaseSavepoint(savepoint));
+            return ownedWorks;
+        }
+
+        // the works are deleted again one by one, in one batch: the count of each delete tells whether this
+        // transaction removed the work
+        int[] counts = session.doReturningWork((connection) -> {
+            connection.rollback(savepoint);
+
+            try (PreparedStatement delete = connection.prepareStatement("delete from WORKS where id = ?")) {
+                for (Long id : ids) {
+                    delete.setLong(1, id);
+                    delete.addBatch();
+                }
+                return delete.executeBatch();
+            }
+        });
+
+        List<WorkDTO> removed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                removed.add(ownedWorks.get(i));
+            }
+        }
+
+        return removed;
     }
 
     /**
@@ -111,16 +431,96 @@ public class WorkRepository {
 
     /**
      *
-     * save changes made to a work, or create the work if its a new work.
+     * finds the works of a given user with the given ids, up to MAX_IDS_PER_STATEMENT works per statement.
+     *
+     * @param username - the owner of the works
+     * @param ids - the ids of the works
+     * @return - the works found, works that don't exist or belong to another user are not returned
+     */
+    public List<Work> findUserWorksByIds(String username, Collection<Long> ids) {
+
+        List<Long> idList = new ArrayList<>(ids);
+        List<Work> works = new ArrayList<>();
+
+        for (int start = 0; start < idList.size(); start += MAX_IDS_PER_STATEMENT) {
+            works.addAll(em.createQuery("select w from Work w where w.id in :ids and w.user.username = :username", Work.class)
+                    .setParameter("ids", idList.subList(start, Math.min(start + MAX_IDS_PER_STATEMENT, idList.size())))
+                    .setParameter("username", username)
+                    .getResultList());
+        }
+
+        return works;
+    }
+
+    /**
+     *
+     * save changes made to a work, or create the work if its a new work. New works are persisted directly,
+     * the insert is only sent to the database on flush, together with the other pending inserts.
      *
      */
     public Work save(Work work) {
+        if (work.getId() == null) {
+            em.persist(work);
+            return work;
+        }
         return em.merge(work);
     }
 
 
+    /**
+     * the columns of the WorkDTO, with the id of the description instead of its text, @see #toWorkDTOs(String, List)
+     */
+    private List<Selection<?>> getWorkSelection(Root<Work> searchRoot) {
+        List<Selection<?>> selection = new ArrayList<>();
+        selection.add(searchRoot.get("id"));
+        selection.add(searchRoot.get("date"));
+        selection.add(searchRoot.get("time"));
+        selection.add(searchRoot.get("description").get("id"));
+        selection.add(searchRoot.get("minutes"));
+        return selection;
+    }
+
+    private List<WorkDTO> toWorkDTOs(String username, List<Object[]> rows) {
+        Map<Long, String> descriptions = workDescriptionRepository.findTexts(username,
+                rows.stream().map((row) -> (Long) row[3]).collect(Collectors.toList()));
+
+        return rows.stream()
+                .map((row) -> new WorkDTO((Long) row[0], (Date) row[1], (Date) row[2], descriptions.get(row[3]),
+                        (Long) row[4]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * the search order is date descending, time ascending - the id is added to make it a total order for keyset pagination
+     */
+    private List<Order> getSearchOrder(CriteriaBuilder cb, Root<Work> searchRoot, boolean reversed) {
+        List<Order> orderList = new ArrayList<>();
+        orderList.add(reversed ? cb.asc(searchRoot.get("date")) : cb.desc(searchRoot.get("date")));
+        orderList.add(reversed ? cb.desc(searchRoot.get("time")) : cb.asc(searchRoot.get("time")));
+        orderList.add(reversed ? cb.desc(searchRoot.get("id")) : cb.asc(searchRoot.get("id")));
+        return orderList;
+    }
+
+    /**
+     * the rows strictly after the cursor key in the search order (or strictly before it, if reversed)
+     */
+    private Predicate getCursorCondition(CriteriaBuilder cb, Root<Work> searchRoot, WorkCursor cursor, boolean reversed) {
+        Path<Date> date = searchRoot.get("date");
+        Path<Time> time = searchRoot.get("time");
+        Path<Long> id = searchRoot.get("id");
+
+        Predicate dateBound = reversed ? cb.greaterThan(date, cursor.getDate()) : cb.lessThan(date, cursor.getDate());
+        Predicate timeBound = reversed ? cb.lessThan(time, cursor.getTime()) : cb.greaterThan(time, cursor.getTime());
+        Predicate idBound = reversed ? cb.lessThan(id, cursor.getId()) : cb.greaterThan(id, cursor.getId());
+
+        return cb.or(
+                dateBound,
+                cb.and(cb.equal(date, cursor.getDate()), timeBound),
+                cb.and(cb.equal(date, cursor.getDate()), cb.equal(time, cursor.getTime()), idBound));
+    }
+
     private Predicate[] getCommonWhereCondition(CriteriaBuilder cb, String username, Root<Work> searchRoot, Date fromDate, Date toDate,
-                                                Time fromTime, Time toTime) {
+                                                Time fromTime, Time toTime, DescriptionFilter descriptionFilter) {
 
         List<Predicate> predicates = new ArrayList<>();
         Join<Work, User> user = searchRoot.join("user");
@@ -140,6 +540,25 @@ public class WorkRepository {
             predicates.add(cb.lessThanOrEqualTo(searchRoot.<Date>get("time"), toTime));
         }
 
+        if (descriptionFilter != null) {
+            Collection<Long> descriptionIds = descriptionFilter.getDescriptionIds();
+
+            if (descriptionIds != null) {
+                // the ids are as complete as the dictionary they come from, @see WorkDescriptionRepository - no
+                // matching description, nothing can match
+                predicates.add(descriptionIds.isEmpty() ? cb.disjunction() :
+                        searchRoot.get("description").get("id").in(descriptionIds));
+            } else {
+                Join<Work, WorkDescription> description = searchRoot.join("description");
+
+                // locate instead of like, so that the searched text has no wildcards to escape
+                Expression<Integer> position = cb.locate(cb.lower(description.<String>get("text")),
+                        descriptionFilter.getText());
+                predicates.add(descriptionFilter.getMatch() == DescriptionMatch.PREFIX ?
+                        cb.equal(position, 1) : cb.greaterThan(position, 0));
+            }
+        }
+
         return predicates.toArray(new Predicate[]{});
     }
 
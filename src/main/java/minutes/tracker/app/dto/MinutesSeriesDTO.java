@@ -0,0 +1,66 @@
+package minutes.tracker.app.dto;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * JSON serializable DTO containing a series of minutes totals: the start date of each period, and the total
+ * minutes of the period at the same index.
+ *
+ */
+public class MinutesSeriesDTO {
+
+    private String period;
+    private List<String> starts;
+    private List<Long> minutes;
+
+    public MinutesSeriesDTO() {
+    }
+
+    public MinutesSeriesDTO(String period, List<String> starts, List<Long> minutes) {
+        this.period = period;
+        this.starts = starts;
+        this.minutes = minutes;
+    }
+
+    public static MinutesSeriesDTO mapFromTotals(String period, Map<Date, Long> totals) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd");
+        List<String> starts = new ArrayList<>(totals.size());
+        List<Long> minutes = new ArrayList<>(totals.size());
+
+        totals.forEach((start, total) -> {
+            starts.add(dateFormat.format(start));
+            minutes.add(total);
+        });
+
+        return new MinutesSeriesDTO(period, starts, minutes);
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public List<String> getStarts() {
+        return starts;
+    }
+
+    public void setStarts(List<String> starts) {
+        this.starts = starts;
+    }
+
+    public List<Long> getMinutes() {
+        return minutes;
+    }
+
+    public void setMinutes(List<Long> minutes) {
+        this.minutes = minutes;
+    }
+}
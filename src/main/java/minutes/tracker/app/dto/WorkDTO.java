@@ -44,9 +44,17 @@ public class WorkDTO {
         this.minutes = minutes;
     }
 
+    /**
+     * constructor used by the search query projections - Hibernate types time columns as java.util.Date,
+     * but the JDBC driver already returns a java.sql.Time instance.
+     */
+    public WorkDTO(Long id, Date date, Date time, String description, Long minutes) {
+        this(id, date, time instanceof Time ? (Time) time : new Time(time.getTime()), description, minutes);
+    }
+
     public static WorkDTO mapFromWorkEntity(Work work) {
         return new WorkDTO(work.getId(), work.getDate(), work.getTime(),
-                work.getDescription(), work.getMinutes());
+                work.getDescription().getText(), work.getMinutes());
     }
 
     public static List<WorkDTO> mapFromWorksEntities(List<Work> works) {
@@ -0,0 +1,52 @@
+package minutes.tracker.app.dto;
+
+import minutes.tracker.app.model.WorkImport;
+
+/**
+ *
+ * JSON serializable DTO containing the progress of a works import
+ *
+ */
+public class WorkImportDTO {
+
+    private String importId;
+    private long linesImported;
+    private boolean completed;
+
+    public WorkImportDTO() {
+    }
+
+    public WorkImportDTO(String importId, long linesImported, boolean completed) {
+        this.importId = importId;
+        this.linesImported = linesImported;
+        this.completed = completed;
+    }
+
+    public static WorkImportDTO mapFromWorkImportEntity(WorkImport workImport) {
+        return new WorkImportDTO(workImport.getImportKey(), workImport.getLinesImported(), workImport.isCompleted());
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public void setImportId(String importId) {
+        this.importId = importId;
+    }
+
+    public long getLinesImported() {
+        return linesImported;
+    }
+
+    public void setLinesImported(long linesImported) {
+        this.linesImported = linesImported;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
@@ -11,7 +11,10 @@ public class WorksDTO {
 
     private long currentPage;
     private long totalPages;
+    private boolean totalPagesExact = true;
     List<WorkDTO> works;
+    private String nextCursor;
+    private String previousCursor;
 
     public WorksDTO(long currentPage, long totalPages, List<WorkDTO> works) {
         this.currentPage = currentPage;
@@ -19,6 +22,12 @@ public class WorksDTO {
         this.works = works;
     }
 
+    public WorksDTO(long currentPage, long totalPages, List<WorkDTO> works, String nextCursor, String previousCursor) {
+        this(currentPage, totalPages, works);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
     public long getCurrentPage() {
         return currentPage;
     }
@@ -35,6 +44,17 @@ public class WorksDTO {
         this.totalPages = totalPages;
     }
 
+    /**
+     * @return false if the total pages is a lower bound, as the results where not fully counted
+     */
+    public boolean isTotalPagesExact() {
+        return totalPagesExact;
+    }
+
+    public void setTotalPagesExact(boolean totalPagesExact) {
+        this.totalPagesExact = totalPagesExact;
+    }
+
     public List<WorkDTO> getWorks() {
         return works;
     }
@@ -42,4 +62,20 @@ public class WorksDTO {
     public void setWorks(List<WorkDTO> works) {
         this.works = works;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public void setPreviousCursor(String previousCursor) {
+        this.previousCursor = previousCursor;
+    }
 }
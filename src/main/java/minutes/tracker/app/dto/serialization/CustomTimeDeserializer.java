@@ -2,37 +2,36 @@ package minutes.tracker.app.dto.serialization;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.sql.Time;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  *
- * custom JSON serializer for java.sql.Time type
+ * custom JSON deserializer for java.sql.Time type, reads H:mm or HH:mm
+ *
+ * The time is parsed straight from the parser's character buffer, without creating a string.
+ *
+ * @see TimeCodec
  *
  */
 public class CustomTimeDeserializer extends JsonDeserializer<Time> {
 
-    private static final Logger LOGGER = Logger.getLogger(CustomTimeDeserializer.class);
-
     @Override
     public Time deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy/MM/dd HH:mm");
-        Time time = null;
-        try {
-            LOGGER.info("converting time parameter from value " + jp.getText());
-            Date date = formatter.parse("1970/01/01 " + jp.getText());
-            time = new Time(date.getTime());
-        } catch (ParseException e) {
-            throw new TimeDeserializationException(e);
+        if (jp.getCurrentToken() != JsonToken.VALUE_STRING) {
+            throw new TimeDeserializationException(
+                    new IllegalArgumentException("Invalid time, expected a string but got " + jp.getCurrentToken()));
+        }
+        int minuteOfDay = TimeCodec.parseMinuteOfDay(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        if (minuteOfDay < 0) {
+            throw new TimeDeserializationException(
+                    new IllegalArgumentException("Invalid time, expected HH:mm: " + jp.getText()));
         }
-        return time;
+        return TimeCodec.toTime(minuteOfDay);
     }
 
 }
@@ -8,11 +8,12 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 
 import java.io.IOException;
 import java.sql.Time;
-import java.text.SimpleDateFormat;
 
 /**
  *
- * custom JSON deserializer for java.sql.Time type
+ * custom JSON serializer for java.sql.Time type, writes HH:mm
+ *
+ * @see TimeCodec
  *
  */
 public class CustomTimeSerializer extends JsonSerializer<Time> {
@@ -20,9 +21,7 @@ public class CustomTimeSerializer extends JsonSerializer<Time> {
     @Override
     public void serialize(Time value, JsonGenerator jgen, SerializerProvider provider)
             throws IOException, JsonProcessingException {
-
-        SimpleDateFormat formatter = new SimpleDateFormat("HH:mm");
-        jgen.writeString(formatter.format(value));
+        jgen.writeString(TimeCodec.format(value));
     }
 
 }
@@ -0,0 +1,125 @@
+package minutes.tracker.app.dto.serialization;
+
+import java.sql.Time;
+import java.util.TimeZone;
+
+/**
+ *
+ * Thread-safe codec between java.sql.Time and the HH:mm format of the JSON API and the CSV files.
+ *
+ * Times are stored as the minute of the day on 1970/01/01 in the default time zone, the same value
+ * that SimpleDateFormat produced before. Formatting is a lookup in a table of the 1440 possible strings
+ * and parsing reads the characters directly, so neither allocates anything but the resulting Time.
+ *
+ * Only H:mm and HH:mm are accepted, with hours 0-23 and minutes 00-59.
+ *
+ */
+public final class TimeCodec {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final long MS_PER_MINUTE = 60 * 1000L;
+    private static final long MS_PER_DAY = MINUTES_PER_DAY * MS_PER_MINUTE;
+
+    // TimeZone.getDefault() returns a new clone on every call, the default zone is read once at startup
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private static final String[] FORMATTED = new String[MINUTES_PER_DAY];
+
+    static {
+        char[] chars = new char[5];
+        chars[2] = ':';
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            int hours = minuteOfDay / 60;
+            int minutes = minuteOfDay % 60;
+            chars[0] = (char) ('0' + hours / 10);
+            chars[1] = (char) ('0' + hours % 10);
+            chars[3] = (char) ('0' + minutes / 10);
+            chars[4] = (char) ('0' + minutes % 10);
+            FORMATTED[minuteOfDay] = new String(chars);
+        }
+    }
+
+    private TimeCodec() {
+    }
+
+    /**
+     * @param time - the time to format
+     * @return the time as HH:mm, a shared string that is never allocated per call
+     */
+    public static String format(Time time) {
+        return FORMATTED[toMinuteOfDay(time)];
+    }
+
+    /**
+     * @param time - the time, as stored by toTime or by the database
+     * @return the minute of the day of the time in the default time zone, between 0 and 1439
+     */
+    public static int toMinuteOfDay(Time time) {
+        long millis = time.getTime();
+        long localMillis = millis + ZONE.getOffset(millis);
+        return (int) (Math.floorMod(localMillis, MS_PER_DAY) / MS_PER_MINUTE);
+    }
+
+    /**
+     * @param minuteOfDay - the minute of the day, between 0 and 1439
+     * @return the time of that minute on 1970/01/01 in the default time zone
+     */
+    public static Time toTime(int minuteOfDay) {
+        if (minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Minute of day out of range: " + minuteOfDay);
+        }
+        long localMillis = minuteOfDay * MS_PER_MINUTE;
+        return new Time(localMillis - ZONE.getOffset(localMillis));
+    }
+
+    /**
+     * @param text - the time as H:mm or HH:mm
+     * @return the parsed time
+     * @throws IllegalArgumentException if the text is not a valid time
+     */
+    public static Time parse(String text) {
+        int minuteOfDay = parseMinuteOfDay(text.toCharArray(), 0, text.length());
+        if (minuteOfDay < 0) {
+            throw new IllegalArgumentException("Invalid time, expected HH:mm: " + text);
+        }
+        return toTime(minuteOfDay);
+    }
+
+    /**
+     * parses H:mm or HH:mm from a range of characters, so that a parser buffer can be read without copying it
+     *
+     * @param chars - the characters to read
+     * @param offset - the index of the first character
+     * @param length - the number of characters to read
+     * @return the minute of the day, or -1 if the characters are not a valid time
+     */
+    public static int parseMinuteOfDay(char[] chars, int offset, int length) {
+        if (length != 4 && length != 5) {
+            return -1;
+        }
+        int colon = offset + length - 3;
+        if (chars[colon] != ':') {
+            return -1;
+        }
+        int hours = 0;
+        for (int i = offset; i < colon; i++) {
+            int digit = digit(chars[i]);
+            if (digit < 0) {
+                return -1;
+            }
+            hours = hours * 10 + digit;
+        }
+        int tens = digit(chars[colon + 1]);
+        int units = digit(chars[colon + 2]);
+        if (hours > 23 || tens < 0 || tens > 5 || units < 0) {
+            return -1;
+        }
+        return hours * 60 + tens * 10 + units;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+}
@@ -0,0 +1,79 @@
+package minutes.tracker.app.dto.serialization;
+
+import minutes.tracker.app.dto.WorkDTO;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+/**
+ *
+ * Writes works to a stream in CSV or NDJSON, one work per line, in the same format that is read by
+ * @see WorkImportParser - so an export can be imported again.
+ *
+ * The writer keeps no state per work, so the memory used does not depend on the number of works written.
+ * Not thread-safe.
+ *
+ */
+public class WorkExportWriter {
+
+    private final WorkFileFormat format;
+    private final Writer writer;
+    private final ObjectWriter jsonWriter;
+
+    // same formats as the JSON API, @see WorkDTO
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd");
+
+    public WorkExportWriter(WorkFileFormat format, OutputStream output) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        this.jsonWriter = new ObjectMapper().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false).writer();
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("CET"));
+
+        if (format == WorkFileFormat.CSV) {
+            writer.write(String.join(",", WorkImportParser.CSV_COLUMNS));
+            writer.write('\n');
+        }
+    }
+
+    public void write(WorkDTO work) throws IOException {
+        if (format == WorkFileFormat.CSV) {
+            writer.write(dateFormat.format(work.getDate()));
+            writer.write(',');
+            writer.write(TimeCodec.format(work.getTime()));
+            writer.write(',');
+            writer.write(String.valueOf(work.getMinutes()));
+            writer.write(',');
+            writeCsvValue(work.getDescription());
+        } else {
+            jsonWriter.writeValue(writer, work);
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * flushes the written works, without closing the underlying stream
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            writer.write(value);
+        } else {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package minutes.tracker.app.dto.serialization;
+
+/**
+ *
+ * The file formats supported for bulk imports and exports of works.
+ *
+ */
+public enum WorkFileFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    WorkFileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static WorkFileFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            String mediaType = contentType.split(";")[0].trim().toLowerCase();
+
+            if (CSV.contentType.equals(mediaType)) {
+                return CSV;
+            }
+            if (NDJSON.contentType.equals(mediaType) || "application/ndjson".equals(mediaType)) {
+                return NDJSON;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content type " + contentType
+                + ", use text/csv or application/x-ndjson.");
+    }
+
+    public static WorkFileFormat fromExtension(String extension) {
+        for (WorkFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format " + extension + ", use csv or ndjson.");
+    }
+}
@@ -0,0 +1,114 @@
+package minutes.tracker.app.dto.serialization;
+
+import minutes.tracker.app.dto.WorkDTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Parses the lines of a works import file into WorkDTOs, one line at a time. Two formats are supported:
+ *
+ * CSV - one work per line with the columns date,time,minutes,description, and an optional header line.
+ * The description can be quoted, with quotes escaped by doubling them, but it cannot span several lines.
+ *
+ * NDJSON - one JSON work per line, with the same fields as the JSON API.
+ *
+ * In both formats the dates and times have the same format as in the JSON API (yyyy/MM/dd and HH:mm), and
+ * the id is ignored, as all imported works are new.
+ *
+ */
+public class WorkImportParser {
+
+    static final String[] CSV_COLUMNS = {"date", "time", "minutes", "description"};
+
+    private final WorkFileFormat format;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public WorkImportParser(WorkFileFormat format) {
+        this.format = format;
+    }
+
+    /**
+     *
+     * @param line - a line of the import file
+     * @return true if the line is the CSV header, and should be skipped
+     */
+    public boolean isHeader(String line) {
+        return format == WorkFileFormat.CSV && line.trim().toLowerCase().startsWith(CSV_COLUMNS[0] + ",");
+    }
+
+    /**
+     *
+     * @param line - a non-empty line of the import file
+     * @return the parsed work, with a null id
+     * @throws IllegalArgumentException if the line is not a valid work
+     */
+    public WorkDTO parse(String line) {
+        WorkDTO work;
+
+        try {
+            if (format == WorkFileFormat.CSV) {
+                // the conversion goes through Jackson so that the dates and times are handled like in the JSON API
+                work = objectMapper.convertValue(parseCsvLine(line), WorkDTO.class);
+            } else {
+                work = objectMapper.readValue(line, WorkDTO.class);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        if (work.getDate() == null || work.getTime() == null || work.getMinutes() == null || work.getDescription() == null) {
+            throw new IllegalArgumentException("date, time, minutes and description are mandatory.");
+        }
+
+        work.setId(null);
+
+        return work;
+    }
+
+    private Map<String, String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>(CSV_COLUMNS.length);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+
+        if (quoted || values.size() != CSV_COLUMNS.length) {
+            throw new IllegalArgumentException("expected " + CSV_COLUMNS.length + " columns: date,time,minutes,description.");
+        }
+
+        Map<String, String> work = new LinkedHashMap<>();
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            work.put(CSV_COLUMNS[i], i < CSV_COLUMNS.length - 1 ? values.get(i).trim() : values.get(i));
+        }
+
+        return work;
+    }
+}
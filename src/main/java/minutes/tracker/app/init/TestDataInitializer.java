@@ -9,10 +9,15 @@ import org.springframework.stereotype.Component;
 
 import minutes.tracker.app.model.Work;
 import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.WorkDescription;
+import minutes.tracker.app.services.DailyMinutesService;
 
 import javax.persistence.EntityManagerFactory;
 import java.sql.Time;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  *
@@ -27,6 +32,9 @@ public class TestDataInitializer {
     @Autowired
     private EntityManagerFactory entityManagerFactory;
 
+    @Autowired
+    private DailyMinutesService dailyMinutesService;
+
 
     public void init() throws Exception {
 
@@ -39,23 +47,35 @@ public class TestDataInitializer {
 
         session.persist(user);
 
-        session.persist(new Work(user, new Date(115, 0, 1), new Time(12, 0, 0), "1 - Mitraillette", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 1), new Time(19, 0, 0), "1 - Eggplant Parmesan", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 2), new Time(12, 0, 0), "2 -  Chickpea with roasted cauliflower", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 2), new Time(19, 0, 0), "2 - Chicken Stew with Turnips & Mushrooms", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 3), new Time(12, 0, 0), "3 - Rosemary Lentils & Greens on Toasted Bread", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 3), new Time(19, 0, 0), "3 - Salmon Cakes with Olives, Lemon & Dill", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 4), new Time(12, 0, 0), "4 - Cowboy Beef & Bean Chili", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 4), new Time(19, 0, 0), "4 -  Duck Chiles Rellenos", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 5), new Time(12, 0, 0), "5 - Brussels Sprout & Potato Hash", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 5), new Time(19, 0, 0), "5 -  Creamy Green Chile Chicken Soup", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 6), new Time(12, 0, 0), "6 -  Duck Chiles Rellenos", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 6), new Time(19, 0, 0), "6 -  Apricot-Chile Glazed Salmon", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 7), new Time(12, 0, 0), "7 -  Creamy Mustard Chicken", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 7), new Time(19, 0, 0), "7 -   Grape Chutney", 1000L));
-        session.persist(new Work(user, new Date(115, 0, 8), new Time(12, 0, 0), "8 -  Broccoli Rabe", 2000L));
-        session.persist(new Work(user, new Date(115, 0, 8), new Time(19, 0, 0), "8 -  Moules Frites", 1000L));
+        // each distinct description is one entry of the description catalog of the user
+        Map<String, WorkDescription> catalog = new HashMap<>();
+        Function<String, WorkDescription> description = (text) -> catalog.computeIfAbsent(text, (key) -> {
+            WorkDescription entry = new WorkDescription(user, key);
+            session.persist(entry);
+            return entry;
+        });
+
+        session.persist(new Work(user, new Date(115, 0, 1), new Time(12, 0, 0), description.apply("1 - Mitraillette"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 1), new Time(19, 0, 0), description.apply("1 - Eggplant Parmesan"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 2), new Time(12, 0, 0), description.apply("2 -  Chickpea with roasted cauliflower"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 2), new Time(19, 0, 0), description.apply("2 - Chicken Stew with Turnips & Mushrooms"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 3), new Time(12, 0, 0), description.apply("3 - Rosemary Lentils & Greens on Toasted Bread"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 3), new Time(19, 0, 0), description.apply("3 - Salmon Cakes with Olives, Lemon & Dill"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 4), new Time(12, 0, 0), description.apply("4 - Cowboy Beef & Bean Chili"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 4), new Time(19, 0, 0), description.apply("4 -  Duck Chiles Rellenos"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 5), new Time(12, 0, 0), description.apply("5 - Brussels Sprout & Potato Hash"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 5), new Time(19, 0, 0), description.apply("5 -  Creamy Green Chile Chicken Soup"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 6), new Time(12, 0, 0), description.apply("6 -  Duck Chiles Rellenos"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 6), new Time(19, 0, 0), description.apply("6 -  Apricot-Chile Glazed Salmon"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 7), new Time(12, 0, 0), description.apply("7 -  Creamy Mustard Chicken"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 7), new Time(19, 0, 0), description.apply("7 -   Grape Chutney"), 1000L));
+        session.persist(new Work(user, new Date(115, 0, 8), new Time(12, 0, 0), description.apply("8 -  Broccoli Rabe"), 2000L));
+        session.persist(new Work(user, new Date(115, 0, 8), new Time(19, 0, 0), description.apply("8 -  Moules Frites"), 1000L));
 
         transaction.commit();
+        session.close();
+
+        // the works above where inserted directly, so the daily minutes rollup is built from them
+        dailyMinutesService.reconcile(null, null);
     }
 }
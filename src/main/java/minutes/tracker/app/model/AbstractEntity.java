@@ -1,6 +1,9 @@
 package minutes.tracker.app.model;
 
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.UUID;
 
@@ -12,42 +15,79 @@ import java.util.UUID;
 @MappedSuperclass
 public class AbstractEntity {
 
+    /**
+     * ids are allocated from one sequence per entity, by blocks of 200 (pooled optimizer), so that most inserts don't
+     * need a database round trip to get their id and can be sent in JDBC batches - a save of a few hundred works and
+     * descriptions takes at most one or two blocks of each.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooledSequence")
+    @GenericGenerator(name = "pooledSequence", strategy = "enhanced-sequence", parameters = {
+            @Parameter(name = "prefer_sequence_per_entity", value = "true"),
+            @Parameter(name = "optimizer", value = "pooled"),
+            @Parameter(name = "increment_size", value = "200")
+    })
     private Long id;
 
     @Version
     private Long version;
 
-    @Transient
-    private UUID uuid;
+    /**
+     * the uuid is stored as two numbers, its most and least significant bits: 16 bytes instead of a 36 chars string,
+     * and equals/hashCode compare the numbers without parsing anything. It is time-ordered, @see TimeOrderedUuid
+     *
+     * each entity table declares a unique index on (UUID_HIGH, UUID_LOW), named UK_<table>_UUID
+     */
+    @Column(name = "UUID_HIGH", nullable = false)
+    private long uuidHigh;
 
-    @Column(name = "UUID")
-    private String uuidStr;
+    @Column(name = "UUID_LOW", nullable = false)
+    private long uuidLow;
 
     @PrePersist
     protected void prePersist() {
-        syncUuidString();
+        assignUuid();
     }
 
-    protected void syncUuidString() {
-        if (null == uuidStr) {
-            // initial method call fills the uuid
-            getUuid();
+    /**
+     * a generated uuid has its version bits set, so it is never all zeros
+     */
+    protected void assignUuid() {
+        if (uuidHigh == 0 && uuidLow == 0) {
+            UUID uuid = TimeOrderedUuid.generate();
+            uuidHigh = uuid.getMostSignificantBits();
+            uuidLow = uuid.getLeastSignificantBits();
         }
     }
 
     public UUID getUuid() {
-        if (uuidStr == null) {
-            if (uuid == null) {
-                uuid = UUID.randomUUID();
-            }
-            uuidStr = uuid.toString();
-        }
-        if (uuid == null && uuidStr != null) {
-            uuid = UUID.fromString(uuidStr);
-        }
-        return uuid;
+        assignUuid();
+        return new UUID(uuidHigh, uuidLow);
+    }
+
+    /**
+     * copies the id, version and uuid of another entity, so that this instance represents the same database row
+     *
+     * @param other - the entity to copy the identity from
+     */
+    protected void copyIdentityOf(AbstractEntity other) {
+        this.id = other.id;
+        this.version = other.version;
+        other.assignUuid();
+        this.uuidHigh = other.uuidHigh;
+        this.uuidLow = other.uuidLow;
+    }
+
+    /**
+     * gives this instance the identity of a row inserted without the entity manager, at its first version, so that
+     * it can be referenced by other entities as a detached instance
+     *
+     * @param id - the id of the inserted row
+     */
+    public void assignInsertedIdentity(Long id) {
+        this.id = id;
+        this.version = 0L;
+        assignUuid();
     }
 
     public Long getId() {
@@ -70,23 +110,21 @@ public class AbstractEntity {
         if (o == null || getClass() != o.getClass()) return false;
 
         AbstractEntity that = (AbstractEntity) o;
+        assignUuid();
+        that.assignUuid();
 
-        if (getUuid() != null ? !getUuid().equals(that.getUuid()) : that.getUuid() != null) return false;
-
-        return true;
+        return uuidHigh == that.uuidHigh && uuidLow == that.uuidLow;
     }
 
     @Override
     public int hashCode() {
-        return getUuid() != null ? getUuid().hashCode() : 0;
+        assignUuid();
+        // same as UUID.hashCode()
+        long bits = uuidHigh ^ uuidLow;
+        return (int) (bits >> 32) ^ (int) bits;
     }
 
     public Long getVersion() {
         return version;
     }
-
-    public String getUuidStr() {
-        return uuidStr;
-    }
 }
-
@@ -0,0 +1,21 @@
+package minutes.tracker.app.model;
+
+/**
+ *
+ * How the total number of results is computed by a paginated search.
+ *
+ * In all modes, the page query fetches one extra row - if the page is not full the total is known without counting.
+ *
+ */
+public enum CountMode {
+
+    /** the results are counted with a separate query if needed, the count is always exact */
+    EXACT,
+
+    /** the results are counted up to a limit, bigger counts are reported as the limit and flagged as not exact */
+    CAPPED,
+
+    /** the results are never counted, the count is a lower bound that includes one extra result if there are more pages */
+    NONE
+
+}
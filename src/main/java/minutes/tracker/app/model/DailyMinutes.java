@@ -0,0 +1,76 @@
+package minutes.tracker.app.model;
+
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ *
+ * The DailyMinutes JPA entity - the total minutes of the works of a user on a given day.
+ *
+ * This is a rollup of the WORKS table, kept up to date incrementally whenever works are saved or deleted,
+ * @see minutes.tracker.app.services.DailyMinutesService
+ *
+ */
+@Entity
+@Table(name = "USER_DAILY_MINUTES", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "day"}), indexes = {
+        @Index(name = "UK_USER_DAILY_MINUTES_UUID", columnList = "UUID_HIGH, UUID_LOW", unique = true)
+})
+public class DailyMinutes extends AbstractEntity {
+
+    @ManyToOne
+    private User user;
+
+    @Temporal(TemporalType.DATE)
+    private Date day;
+
+    private Long minutes;
+
+    public DailyMinutes() {
+
+    }
+
+    public DailyMinutes(User user, Date day, Long minutes) {
+        this.user = user;
+        this.day = dayOf(day);
+        this.minutes = minutes;
+    }
+
+    /**
+     *
+     * @param date - a date, possibly with a time part
+     * @return the start of the day of the date, in the default timezone
+     */
+    public static Date dayOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Date getDay() {
+        return day;
+    }
+
+    public Long getMinutes() {
+        return minutes;
+    }
+
+    public void setMinutes(Long minutes) {
+        this.minutes = minutes;
+    }
+}
@@ -0,0 +1,61 @@
+package minutes.tracker.app.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ *
+ * The description criteria of a work search: the searched text, and the entries of the description catalog of the
+ * user that match it, @see minutes.tracker.app.dao.WorkDescriptionRepository
+ *
+ * When the matching entries are known, the works are selected by the ids of their descriptions. Otherwise the
+ * database checks the text of the descriptions.
+ *
+ */
+public final class DescriptionFilter {
+
+    private final String text;
+    private final DescriptionMatch match;
+    private final Collection<Long> descriptionIds;
+
+    /**
+     * @param text - the searched text
+     * @param match - how the text is matched
+     * @param descriptionIds - the ids of the matching descriptions, or null if they are not known
+     */
+    public DescriptionFilter(String text, DescriptionMatch match, Collection<Long> descriptionIds) {
+        this.text = normalize(text);
+        this.match = match;
+        this.descriptionIds = descriptionIds != null ? Collections.unmodifiableCollection(descriptionIds) : null;
+    }
+
+    /**
+     * @param text - a searched text or a description
+     * @return the text as it is compared: in lower case
+     */
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param description - the description of a work
+     * @return true if the description matches
+     */
+    public boolean matches(String description) {
+        String normalized = normalize(description);
+        return match == DescriptionMatch.PREFIX ? normalized.startsWith(text) : normalized.contains(text);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public DescriptionMatch getMatch() {
+        return match;
+    }
+
+    public Collection<Long> getDescriptionIds() {
+        return descriptionIds;
+    }
+}
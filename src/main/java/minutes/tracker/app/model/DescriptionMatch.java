@@ -0,0 +1,16 @@
+package minutes.tracker.app.model;
+
+/**
+ *
+ * How the description of a work is matched by a description search. The matching ignores the case.
+ *
+ */
+public enum DescriptionMatch {
+
+    /** the description contains the searched text anywhere */
+    CONTAINS,
+
+    /** the description starts with the searched text */
+    PREFIX
+
+}
@@ -7,23 +7,60 @@ import java.util.List;
  * Search result of a search method, meant to be used as return type in the service layer for search methods,
  * when both the result and the total results count are needed.
  *
+ * Keyset paginated searches don't count the results, but return the cursors of the previous and next pages instead.
+ *
  * @param <T>
  */
 public class SearchResult<T> {
 
     private long resultsCount;
+    private boolean resultsCountExact = true;
     private List<T> result;
+    private String nextCursor;
+    private String previousCursor;
 
     public SearchResult(long resultsCount, List<T> result) {
         this.resultsCount = resultsCount;
         this.result = result;
     }
 
+    public SearchResult(long resultsCount, List<T> result, String nextCursor, String previousCursor) {
+        this(resultsCount, result);
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public SearchResult(long resultsCount, boolean resultsCountExact, List<T> result, String nextCursor, String previousCursor) {
+        this(resultsCount, result, nextCursor, previousCursor);
+        this.resultsCountExact = resultsCountExact;
+    }
+
     public long getResultsCount() {
         return resultsCount;
     }
 
+    /**
+     * @return false if the results count is a lower bound, @see CountMode
+     */
+    public boolean isResultsCountExact() {
+        return resultsCountExact;
+    }
+
     public List<T> getResult() {
         return result;
     }
+
+    /**
+     * @return the cursor of the page after this one, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return the cursor of the page before this one, or null if this is the first page
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
 }
@@ -0,0 +1,55 @@
+package minutes.tracker.app.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Generates time-ordered UUIDs, in the version 7 layout of RFC 9562:
+ *
+ * - 48 bits of Unix time in milliseconds
+ * - 4 bits of version, 7
+ * - 12 bits of counter, so that the UUIDs generated in the same millisecond still increase
+ * - 2 bits of variant, then 62 random bits
+ *
+ * The UUIDs generated by the application increase, so the new rows are added at the end of the indexes on their
+ * UUID instead of at random pages. If more than 4096 UUIDs are generated in the same millisecond, the timestamp
+ * runs ahead of the clock until the clock catches up.
+ *
+ * The random bits don't come from a secure random: the UUIDs identify the rows, they are not secrets.
+ *
+ */
+public final class TimeOrderedUuid {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 7L << COUNTER_BITS;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    // the timestamp and the counter of the last UUID, as 48 + 12 bits
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * @return a new UUID, greater than the ones generated before it by this application
+     */
+    public static UUID generate() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long last;
+        long next;
+        do {
+            last = LAST.get();
+            next = Math.max(now, last + 1);
+        } while (!LAST.compareAndSet(last, next));
+
+        long timestamp = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        long mostSigBits = timestamp << 16 | VERSION | counter;
+        long leastSigBits = VARIANT | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
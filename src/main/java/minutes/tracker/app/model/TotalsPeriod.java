@@ -0,0 +1,54 @@
+package minutes.tracker.app.model;
+
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ *
+ * The periods in which minutes totals can be aggregated. Weeks start on Monday.
+ *
+ */
+public enum TotalsPeriod {
+
+    DAY, WEEK, MONTH;
+
+    /**
+     *
+     * @param date - any date
+     * @return the first day of the period that contains the date
+     */
+    public Date startOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(DailyMinutes.dayOf(date));
+
+        if (this == WEEK) {
+            int daysSinceMonday = (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.MONDAY + 7) % 7;
+            calendar.add(Calendar.DAY_OF_MONTH, -daysSinceMonday);
+        } else if (this == MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        return calendar.getTime();
+    }
+
+    /**
+     *
+     * @param start - the first day of a period
+     * @return the first day of the next period
+     */
+    public Date next(Date start) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(start);
+
+        if (this == DAY) {
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        } else if (this == WEEK) {
+            calendar.add(Calendar.DAY_OF_MONTH, 7);
+        } else {
+            calendar.add(Calendar.MONTH, 1);
+        }
+
+        return calendar.getTime();
+    }
+}
@@ -2,6 +2,7 @@ package minutes.tracker.app.model;
 
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
@@ -12,7 +13,9 @@ import javax.persistence.Table;
  *
  */
 @Entity
-@Table(name = "USERS")
+@Table(name = "USERS", indexes = {
+        @Index(name = "UK_USERS_UUID", columnList = "UUID_HIGH, UUID_LOW", unique = true)
+})
 @NamedQueries({
         @NamedQuery(
                 name = User.FIND_BY_USERNAME,
@@ -20,7 +23,7 @@ import javax.persistence.Table;
         ),
         @NamedQuery(
                 name = User.COUNT_TODAYS_MINUTES,
-                query = "select sum(m.minutes) from Work m where m.user.username = :username and m.date = CURRENT_DATE"
+                query = "select d.minutes from DailyMinutes d where d.user.username = :username and d.day = CURRENT_DATE"
         )
 })
 public class User extends AbstractEntity {
@@ -45,6 +48,16 @@ public class User extends AbstractEntity {
         this.maxMinutesPerDay = maxMinutesPerDay;
     }
 
+    /**
+     *
+     * @return a copy of this user that is not attached to any persistence context, with the same id and version
+     */
+    public User detachedCopy() {
+        User copy = new User(username, passwordDigest, email, maxMinutesPerDay);
+        copy.copyIdentityOf(this);
+        return copy;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -0,0 +1,29 @@
+package minutes.tracker.app.model;
+
+
+/**
+ * Result of a read, with the data version of the user it was read at, @see
+ * minutes.tracker.app.services.UserDataVersions#read(String, java.util.function.Supplier)
+ *
+ * The version is null when the result was read on a replica, that can lag behind the version.
+ *
+ * @param <T>
+ */
+public class VersionedResult<T> {
+
+    private T result;
+    private String dataVersion;
+
+    public VersionedResult(T result, String dataVersion) {
+        this.result = result;
+        this.dataVersion = dataVersion;
+    }
+
+    public T getResult() {
+        return result;
+    }
+
+    public String getDataVersion() {
+        return dataVersion;
+    }
+}
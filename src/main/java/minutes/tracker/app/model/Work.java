@@ -2,6 +2,8 @@ package minutes.tracker.app.model;
 
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import java.sql.Time;
@@ -9,11 +11,14 @@ import java.util.Date;
 
 /**
  *
- * The Work JPA entity
+ * The Work JPA entity - the description is a reference to the description catalog of the user, @see WorkDescription
  *
  */
 @Entity
-@Table(name = "WORKS")
+@Table(name = "WORKS", indexes = {
+        @Index(name = "IDX_WORKS_USER_DATE_TIME", columnList = "user_id, date, time, id"),
+        @Index(name = "UK_WORKS_UUID", columnList = "UUID_HIGH, UUID_LOW", unique = true)
+})
 public class Work extends AbstractEntity {
 
     @ManyToOne
@@ -21,14 +26,17 @@ public class Work extends AbstractEntity {
 
     private Date date;
     private Time time;
-    private String description;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private WorkDescription description;
+
     private Long minutes;
 
     public Work() {
 
     }
 
-    public Work(User user, Date date, Time time, String description, Long minutes) {
+    public Work(User user, Date date, Time time, WorkDescription description, Long minutes) {
         this.user = user;
         this.date = date;
         this.time = time;
@@ -53,11 +61,11 @@ public class Work extends AbstractEntity {
         this.time = time;
     }
 
-    public String getDescription() {
+    public WorkDescription getDescription() {
         return description;
     }
 
-    public void setDescription(String description) {
+    public void setDescription(WorkDescription description) {
         this.description = description;
     }
 
@@ -0,0 +1,97 @@
+package minutes.tracker.app.model;
+
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ *
+ * Position of a work in the search ordering (date descending, time ascending, id ascending), used for
+ * keyset pagination: instead of skipping the first N rows, the next page starts right after the last seen key.
+ *
+ * Cursors are sent to the client as opaque strings, @see #encode() and #decode(String)
+ *
+ */
+public class WorkCursor {
+
+    public enum Direction {
+        /** the page contains the works that come after the cursor position */
+        AFTER,
+        /** the page contains the works that come before the cursor position */
+        BEFORE
+    }
+
+    private static final String SEPARATOR = ":";
+
+    private final Direction direction;
+    private final Date date;
+    private final Time time;
+    private final Long id;
+
+    public WorkCursor(Direction direction, Date date, Time time, Long id) {
+        this.direction = direction;
+        this.date = date;
+        this.time = time;
+        this.id = id;
+    }
+
+    public static WorkCursor after(Date date, Time time, Long id) {
+        return new WorkCursor(Direction.AFTER, date, time, id);
+    }
+
+    public static WorkCursor before(Date date, Time time, Long id) {
+        return new WorkCursor(Direction.BEFORE, date, time, id);
+    }
+
+    /**
+     *
+     * @return an url-safe opaque representation of this cursor
+     */
+    public String encode() {
+        String raw = direction.name() + SEPARATOR + date.getTime() + SEPARATOR + time.getTime() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     *
+     * parses a cursor previously created with #encode()
+     *
+     * @param encoded - the opaque cursor sent by the client
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static WorkCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid search cursor.");
+            }
+
+            return new WorkCursor(Direction.valueOf(parts[0]), new Date(Long.parseLong(parts[1])),
+                    new Time(Long.parseLong(parts[2])), Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException e) {
+            // also covers NumberFormatException and invalid Base64 / enum values
+            throw new IllegalArgumentException("Invalid search cursor.", e);
+        }
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public Time getTime() {
+        return time;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,51 @@
+package minutes.tracker.app.model;
+
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+/**
+ *
+ * The WorkDescription JPA entity - one entry of the description catalog of a user.
+ *
+ * Users repeat the same few descriptions over and over, so each distinct description is stored once per user and the
+ * works reference it by id. The entries are never modified: changing the description of a work points it to another
+ * entry, so the entries can be cached and shared between threads, @see minutes.tracker.app.dao.WorkDescriptionRepository
+ *
+ * A text is stored at most once per user, the unique index on (user_id, DESCRIPTION) also serves the lookups by user.
+ *
+ */
+@Entity
+@Table(name = "WORK_DESCRIPTIONS", indexes = {
+        @Index(name = "UK_WORK_DESCRIPTIONS_USER_TEXT", columnList = "user_id, DESCRIPTION", unique = true),
+        @Index(name = "UK_WORK_DESCRIPTIONS_UUID", columnList = "UUID_HIGH, UUID_LOW", unique = true)
+})
+public class WorkDescription extends AbstractEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private User user;
+
+    @Column(name = "DESCRIPTION", nullable = false)
+    private String text;
+
+    public WorkDescription() {
+
+    }
+
+    public WorkDescription(User user, String text) {
+        this.user = user;
+        this.text = text;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
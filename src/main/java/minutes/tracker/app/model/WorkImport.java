@@ -0,0 +1,74 @@
+package minutes.tracker.app.model;
+
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ *
+ * The WorkImport JPA entity - the checkpoint of a bulk import of works, identified by a key chosen by the client.
+ *
+ * The number of imported lines is updated in the same transaction as each batch of imported works, so an interrupted
+ * import can be resumed by sending the same file again with the same key.
+ *
+ */
+@Entity
+@Table(name = "WORK_IMPORTS", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "importKey"}), indexes = {
+        @Index(name = "UK_WORK_IMPORTS_UUID", columnList = "UUID_HIGH, UUID_LOW", unique = true)
+})
+@NamedQueries({
+        @NamedQuery(
+                name = WorkImport.FIND_BY_KEY,
+                query = "select i from WorkImport i where i.user.username = :username and i.importKey = :importKey"
+        )
+})
+public class WorkImport extends AbstractEntity {
+
+    public static final String FIND_BY_KEY = "workImport.findByKey";
+
+    @ManyToOne
+    private User user;
+
+    private String importKey;
+    private Long linesImported;
+    private boolean completed;
+
+    public WorkImport() {
+
+    }
+
+    public WorkImport(User user, String importKey) {
+        this.user = user;
+        this.importKey = importKey;
+        this.linesImported = 0L;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getImportKey() {
+        return importKey;
+    }
+
+    public Long getLinesImported() {
+        return linesImported;
+    }
+
+    public void setLinesImported(Long linesImported) {
+        this.linesImported = linesImported;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
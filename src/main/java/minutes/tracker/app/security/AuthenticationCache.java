@@ -0,0 +1,133 @@
+package minutes.tracker.app.security;
+
+
+import minutes.tracker.app.dao.LruCache;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ *
+ * Short lived cache of the successful authentications, so that API clients sending their credentials on every
+ * request (HTTP Basic) don't pay a database lookup and a BCrypt verification each time.
+ *
+ * The credentials are never stored: the cache key is an HMAC-SHA256 of the username and password, with a random
+ * secret generated at startup. Failed authentications are not cached.
+ *
+ */
+@Component
+public class AuthenticationCache {
+
+    /**
+     * the maximum number of cached authentications
+     */
+    public static final int MAX_SIZE = 10000;
+
+    /**
+     * how long a successful authentication is reused, after which the credentials are verified again
+     */
+    public static final long TIME_TO_LIVE_MILLIS = 60 * 1000;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec secret;
+
+    private final LruCache<String, CachedAuthentication> cache = new LruCache<>(MAX_SIZE, TIME_TO_LIVE_MILLIS);
+
+    public AuthenticationCache() {
+        byte[] secretBytes = new byte[32];
+        new SecureRandom().nextBytes(secretBytes);
+        this.secret = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     *
+     * @param username - the username sent by the client
+     * @param password - the plain text password sent by the client
+     * @return the previous successful authentication with the same credentials, or null if there is none
+     */
+    public CachedAuthentication find(String username, String password) {
+        CachedAuthentication cached = cache.get(keyOf(username, password));
+        return cached != null && cached.getUsername().equals(username) ? cached : null;
+    }
+
+    /**
+     *
+     * remembers a successful authentication
+     *
+     * @param username - the username sent by the client
+     * @param password - the plain text password sent by the client, only its keyed hash is kept
+     * @param principal - the authenticated principal, without credentials
+     * @param authorities - the authorities granted to the principal
+     */
+    public void put(String username, String password, Object principal, Collection<? extends GrantedAuthority> authorities) {
+        cache.put(keyOf(username, password), new CachedAuthentication(username, principal, authorities));
+    }
+
+    /**
+     *
+     * forgets all the authentications of a user, to be called when the user or its password changes
+     *
+     * @param username - the changed user
+     */
+    public void evictUser(String username) {
+        cache.removeIf((cached) -> cached.getUsername().equals(username));
+    }
+
+    /**
+     *
+     * @return the underlying cache, to read its hit and miss counters
+     */
+    public LruCache<String, CachedAuthentication> getCache() {
+        return cache;
+    }
+
+    private String keyOf(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secret);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            // separator that cannot be part of a username, so that (ab, c) and (a, bc) have different keys
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not hash the credentials.", e);
+        }
+    }
+
+    /**
+     * a successful authentication, without its credentials
+     */
+    public static class CachedAuthentication {
+
+        private final String username;
+        private final Object principal;
+        private final Collection<? extends GrantedAuthority> authorities;
+
+        public CachedAuthentication(String username, Object principal, Collection<? extends GrantedAuthority> authorities) {
+            this.username = username;
+            this.principal = principal;
+            this.authorities = authorities;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Object getPrincipal() {
+            return principal;
+        }
+
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+    }
+}
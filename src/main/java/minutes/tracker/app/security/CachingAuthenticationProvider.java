@@ -0,0 +1,79 @@
+package minutes.tracker.app.security;
+
+
+import minutes.tracker.app.security.AuthenticationCache.CachedAuthentication;
+import minutes.tracker.app.services.LatencyHistogram;
+import minutes.tracker.app.services.LatencyMetrics;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ *
+ * Authentication provider that reuses the recent successful authentications from the @see AuthenticationCache,
+ * and delegates to another provider (database lookup and BCrypt verification) otherwise.
+ *
+ * The latency of both paths is recorded separately, as the BCrypt verification is orders of magnitude slower.
+ *
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final AuthenticationCache authenticationCache;
+    private final LatencyHistogram cachedLatency;
+    private final LatencyHistogram delegateLatency;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, AuthenticationCache authenticationCache,
+                                         LatencyMetrics latencyMetrics) {
+        this.delegate = delegate;
+        this.authenticationCache = authenticationCache;
+        this.cachedLatency = latencyMetrics.histogram(LatencyMetrics.AUTHENTICATIONS, "cache");
+        this.delegateLatency = latencyMetrics.histogram(LatencyMetrics.AUTHENTICATIONS, "database");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        long startNanos = System.nanoTime();
+        String username = authentication.getName();
+        Object credentials = authentication.getCredentials();
+
+        if (username == null || !(credentials instanceof String)) {
+            return authenticateWithDelegate(authentication, startNanos);
+        }
+
+        String password = (String) credentials;
+        CachedAuthentication cached = authenticationCache.find(username, password);
+
+        if (cached != null) {
+            // a new token for each request, so that the request details (remote address, session) are not shared
+            UsernamePasswordAuthenticationToken result = new UsernamePasswordAuthenticationToken(
+                    cached.getPrincipal(), password, cached.getAuthorities());
+            result.setDetails(authentication.getDetails());
+            cachedLatency.recordSince(startNanos);
+            return result;
+        }
+
+        Authentication result = authenticateWithDelegate(authentication, startNanos);
+
+        if (result != null && result.isAuthenticated()) {
+            authenticationCache.put(username, password, result.getPrincipal(), result.getAuthorities());
+        }
+
+        return result;
+    }
+
+    private Authentication authenticateWithDelegate(Authentication authentication, long startNanos) {
+        try {
+            return delegate.authenticate(authentication);
+        } finally {
+            delegateLatency.recordSince(startNanos);
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -34,14 +34,19 @@ public class SecurityUserDetailsService implements UserDetailsService {
         User user = userRepository.findUserByUsername(username);
 
         if (user == null) {
-            String message = "Username not found" + username;
-            LOGGER.info(message);
+            String message = "Username not found " + username;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(message);
+            }
             throw new UsernameNotFoundException(message);
         }
         List<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
 
-        LOGGER.info("Found user in database: " + user);
+        // only the username, the user holds the password digest
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Found user in database: " + username);
+        }
 
         return new org.springframework.security.core.userdetails.User(username, user.getPasswordDigest(), authorities);
     }
@@ -0,0 +1,32 @@
+package minutes.tracker.app.services;
+
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ *
+ * Nightly job that rebuilds the daily minutes rollup of the last days, in case it drifted from the WORKS table
+ * (for example after manual changes in the database).
+ *
+ */
+@Component
+public class DailyMinutesReconciliationJob {
+
+    private static final int RECONCILED_DAYS = 7;
+
+    @Autowired
+    DailyMinutesService dailyMinutesService;
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void reconcileLastDays() {
+        Calendar fromDay = Calendar.getInstance();
+        fromDay.add(Calendar.DAY_OF_MONTH, -RECONCILED_DAYS);
+
+        dailyMinutesService.reconcile(fromDay.getTime(), new Date());
+    }
+}
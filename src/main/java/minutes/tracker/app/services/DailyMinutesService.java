@@ -0,0 +1,198 @@
+package minutes.tracker.app.services;
+
+
+import minutes.tracker.app.dao.DailyMinutesRepository;
+import minutes.tracker.app.model.DailyMinutes;
+import minutes.tracker.app.model.TotalsPeriod;
+import minutes.tracker.app.model.User;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ *
+ * Business service that maintains the per-user daily minutes rollup.
+ *
+ * The rollup is updated incrementally in the same transaction as the works that change it, and can be rebuilt
+ * from the WORKS table with #reconcile(Date, Date).
+ *
+ */
+@Service
+public class DailyMinutesService {
+
+    private static final Logger LOGGER = Logger.getLogger(DailyMinutesService.class);
+
+    private static final long DAY_IN_MS = 1000 * 60 * 60 * 24;
+
+    /**
+     * the longest range of dates for which totals can be computed, about 10 years
+     */
+    public static final int MAX_TOTALS_RANGE_DAYS = 3660;
+
+    /**
+     * the number of times the missing totals of a save are inserted, when concurrent saves keep inserting some of
+     * them first
+     */
+    private static final int MAX_ADD_ATTEMPTS = 3;
+
+    @Autowired
+    DailyMinutesRepository dailyMinutesRepository;
+
+    @Autowired
+    UserDataVersions userDataVersions;
+
+    /**
+     *
+     * collects the changes in minutes per day, to be applied at once with #addMinutes(User, Map)
+     *
+     * @param minutesByDay - the changes collected so far
+     * @param date - the date of the work
+     * @param minutes - the minutes to add, negative to remove minutes
+     */
+    public static void collect(Map<Date, Long> minutesByDay, Date date, Long minutes) {
+        minutesByDay.merge(DailyMinutes.dayOf(date), minutes, Long::sum);
+    }
+
+    /**
+     *
+     * @return an empty map to collect changes in minutes per day
+     */
+    public static Map<Date, Long> newMinutesByDay() {
+        return new TreeMap<>();
+    }
+
+    /**
+     *
+     * adds minutes to the daily totals of a user, creating the totals that don't exist yet.
+     *
+     * The minutes are added in the database, in one batch of updates, so that concurrent saves of the same user and
+     * day don't overwrite each other's totals. The missing totals are inserted in one batch: if a concurrent save
+     * inserted one of them first, the minutes are added to it instead.
+     *
+     * @param user - the owner of the works
+     * @param minutesByDay - the minutes to add per day, as collected with #collect
+     */
+    @Transactional
+    public void addMinutes(User user, Map<Date, Long> minutesByDay) {
+        minutesByDay.values().removeIf((minutes) -> minutes == 0);
+
+        for (int attempt = 1; !minutesByDay.isEmpty(); attempt++) {
+            Map<Date, Long> missing = dailyMinutesRepository.addToExistingDays(user, minutesByDay);
+
+            if (missing.isEmpty() || dailyMinutesRepository.insertDays(user, missing)) {
+                return;
+            }
+
+            if (attempt == MAX_ADD_ATTEMPTS) {
+                throw new ConcurrencyFailureException("Daily totals of user " + user.getUsername() +
+                        " kept being created concurrently, giving up after " + attempt + " attempts.");
+            }
+
+            minutesByDay = missing;
+        }
+    }
+
+    /**
+     *
+     * the minutes of a user per day, week or month in a range of dates, read from the daily minutes rollup.
+     *
+     * The series is dense: every period of the range is present, with zero minutes if there are no works in it.
+     * The first period can start before the from date, but only the minutes from the from date are counted in it.
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - from this date, including
+     * @param toDate - until this date, including
+     * @param period - the period of each total
+     * @return the total minutes per period, by period start date, in chronological order
+     */
+    @Transactional(readOnly = true)
+    public SortedMap<Date, Long> findMinutesByPeriod(String username, Date fromDate, Date toDate, TotalsPeriod period) {
+        notNull(fromDate, "fromDate is mandatory");
+        notNull(toDate, "toDate is mandatory");
+        notNull(period, "period is mandatory");
+
+        if (fromDate.after(toDate)) {
+            throw new IllegalArgumentException("From date cannot be after to date.");
+        }
+
+        if (toDate.getTime() - fromDate.getTime() > MAX_TOTALS_RANGE_DAYS * DAY_IN_MS) {
+            throw new IllegalArgumentException("The range cannot be longer than " + MAX_TOTALS_RANGE_DAYS + " days.");
+        }
+
+        SortedMap<Date, Long> totals = new TreeMap<>();
+
+        for (Date start = period.startOf(fromDate); !start.after(toDate); start = period.next(start)) {
+            totals.put(start, 0L);
+        }
+
+        for (Object[] row : dailyMinutesRepository.findUserMinutesByDay(username, fromDate, toDate)) {
+            totals.merge(period.startOf((Date) row[0]), (Long) row[1], Long::sum);
+        }
+
+        return totals;
+    }
+
+    /**
+     *
+     * rebuilds the daily totals of all users in a range of days from the WORKS table, fixing the days that drifted.
+     *
+     * @param fromDay - from this day, including, or null for no lower bound
+     * @param toDay - until this day, including, or null for no upper bound
+     * @return the number of daily totals that where fixed
+     */
+    @Transactional
+    public int reconcile(Date fromDay, Date toDay) {
+
+        Map<List<Object>, Long> expectedTotals = new HashMap<>();
+
+        for (Object[] row : dailyMinutesRepository.sumWorkMinutesByUserAndDay(fromDay, toDay)) {
+            expectedTotals.put(key((Long) row[0], (Date) row[1]), (Long) row[2]);
+        }
+
+        int fixed = 0;
+
+        for (DailyMinutes dailyMinutes : dailyMinutesRepository.findDays(fromDay, toDay)) {
+            Long expected = expectedTotals.remove(key(dailyMinutes.getUser().getId(), dailyMinutes.getDay()));
+
+            if (expected == null) {
+                dailyMinutesRepository.delete(dailyMinutes);
+                fixed++;
+            } else if (!Objects.equals(expected, dailyMinutes.getMinutes())) {
+                dailyMinutes.setMinutes(expected);
+                fixed++;
+            }
+        }
+
+        for (Map.Entry<List<Object>, Long> missing : expectedTotals.entrySet()) {
+            User user = dailyMinutesRepository.getUserReference((Long) missing.getKey().get(0));
+            dailyMinutesRepository.save(new DailyMinutes(user, new Date((Long) missing.getKey().get(1)), missing.getValue()));
+            fixed++;
+        }
+
+        if (fixed > 0) {
+            userDataVersions.bumpAll();
+            LOGGER.warn("Reconciliation fixed " + fixed + " daily minutes totals between " + fromDay + " and " + toDay);
+        }
+
+        return fixed;
+    }
+
+    private static List<Object> key(Long userId, Date day) {
+        return Arrays.asList(userId, DailyMinutes.dayOf(day).getTime());
+    }
+
+}
@@ -0,0 +1,48 @@
+package minutes.tracker.app.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ *
+ * The latency histograms of the application, by metric and label: the REST handlers and their time in the
+ * database, the repository methods and the authentications. They are published with the other metrics at /metrics, @see MetricsService
+ *
+ * The callers keep the histograms they record into, so that recording does not go through the maps.
+ *
+ */
+@Component
+public class LatencyMetrics {
+
+    public static final String HTTP_REQUESTS = "http_request_duration_seconds";
+    public static final String HTTP_REQUEST_DATABASE_TIME = "http_request_database_duration_seconds";
+    public static final String REPOSITORY_CALLS = "repository_call_duration_seconds";
+    public static final String AUTHENTICATIONS = "authentication_duration_seconds";
+
+    private final Map<String, SortedMap<String, LatencyHistogram>> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @param metric - the name of the metric, e.g. HTTP_REQUESTS
+     * @param label - what is measured, e.g. the name of the handler
+     * @return the histogram of the label, created on first use
+     */
+    public LatencyHistogram histogram(String metric, String label) {
+        return metrics.computeIfAbsent(metric, (name) -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(label, (name) -> new LatencyHistogram());
+    }
+
+    /**
+     * @param metric - the name of the metric
+     * @return the histograms of the metric, by label
+     */
+    public SortedMap<String, LatencyHistogram> getHistograms(String metric) {
+        SortedMap<String, LatencyHistogram> histograms = metrics.get(metric);
+        return histograms != null ? Collections.unmodifiableSortedMap(histograms) : Collections.emptySortedMap();
+    }
+
+}
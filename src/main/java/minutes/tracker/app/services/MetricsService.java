@@ -0,0 +1,179 @@
+package minutes.tracker.app.services;
+
+import minutes.tracker.app.dao.ConnectionPoolMetrics;
+import minutes.tracker.app.dao.LruCache;
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.UserRepository;
+import minutes.tracker.app.dao.WorkDescriptionRepository;
+import minutes.tracker.app.security.AuthenticationCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Writes the metrics of the application in the Prometheus text format: the latency histograms, the statements sent
+ * to the database, and the state of the connection pools, of the request executors and of the caches.
+ *
+ * Each scrape reads the current values, nothing is computed while the application records them.
+ *
+ */
+@Service
+public class MetricsService {
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final double MICROS_PER_SECOND = 1000 * 1000;
+    private static final double MILLIS_PER_SECOND = 1000;
+
+    @Autowired
+    private LatencyMetrics latencyMetrics;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Autowired
+    private QueryMonitoringDataSource queryMonitoringDataSource;
+
+    @Autowired
+    private RequestExecutors requestExecutors;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private SearchPageCache searchPageCache;
+
+    @Autowired
+    private WorkDescriptionRepository workDescriptionRepository;
+
+    /**
+     * @return all the metrics, in the Prometheus text format version 0.0.4
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+
+        writeLatencies(out, LatencyMetrics.HTTP_REQUESTS, "handler", "Latency of the REST handlers.");
+        writeLatencies(out, LatencyMetrics.HTTP_REQUEST_DATABASE_TIME, "handler", "Time spent in the database by the REST handlers.");
+        writeLatencies(out, LatencyMetrics.REPOSITORY_CALLS, "method", "Latency of the repository methods.");
+        writeLatencies(out, LatencyMetrics.AUTHENTICATIONS, "source", "Latency of the authentications, cached or verified against the database.");
+
+        writeStatements(out);
+        writePools(out);
+        writeExecutors(out);
+        writeCaches(out);
+
+        return out.toString();
+    }
+
+    private void writeLatencies(StringBuilder out, String metric, String label, String help) {
+        Map<String, LatencyHistogram> histograms = latencyMetrics.getHistograms(metric);
+
+        header(out, metric, "summary", help);
+        histograms.forEach((name, histogram) -> {
+            for (double quantile : QUANTILES) {
+                sample(out, metric, label + "=\"" + name + "\",quantile=\"" + quantile + "\"",
+                        histogram.getPercentileMicros(quantile) / MICROS_PER_SECOND);
+            }
+            sample(out, metric + "_sum", label + "=\"" + name + "\"", histogram.getTotalMicros() / MICROS_PER_SECOND);
+            sample(out, metric + "_count", label + "=\"" + name + "\"", histogram.getCount());
+        });
+
+        header(out, metric + "_max", "gauge", help + " Maximum since the start.");
+        histograms.forEach((name, histogram) ->
+                sample(out, metric + "_max", label + "=\"" + name + "\"", histogram.getMaxMicros() / MICROS_PER_SECOND));
+    }
+
+    private void writeStatements(StringBuilder out) {
+        header(out, "db_statements_total", "counter", "Statements sent to the database, a JDBC batch counts as one.");
+        sample(out, "db_statements_total", "", queryMonitoringDataSource.getStatementCount());
+        header(out, "db_rows_fetched_total", "counter", "Rows read from the result sets.");
+        sample(out, "db_rows_fetched_total", "", queryMonitoringDataSource.getRowCount());
+        header(out, "db_slow_queries_total", "counter", "Statements slower than db.slowQuery.thresholdMs.");
+        sample(out, "db_slow_queries_total", "", queryMonitoringDataSource.getSlowQueryCount());
+    }
+
+    private void writePools(StringBuilder out) {
+        Map<String, ConnectionPoolMetrics.PoolMetrics> pools = connectionPoolMetrics.getPools();
+
+        header(out, "db_pool_connections", "gauge", "Connections of the JDBC pools, by state.");
+        pools.forEach((name, pool) -> {
+            sample(out, "db_pool_connections", poolLabel(name, "active"), pool.getActiveConnections());
+            sample(out, "db_pool_connections", poolLabel(name, "idle"), pool.getIdleConnections());
+            sample(out, "db_pool_connections", poolLabel(name, "total"), pool.getTotalConnections());
+        });
+        header(out, "db_pool_pending_threads", "gauge", "Threads waiting for a connection.");
+        pools.forEach((name, pool) -> sample(out, "db_pool_pending_threads", "pool=\"" + name + "\"", pool.getPendingThreads()));
+        header(out, "db_pool_acquisitions_total", "counter", "Connections acquired from the pool.");
+        pools.forEach((name, pool) -> sample(out, "db_pool_acquisitions_total", "pool=\"" + name + "\"", pool.getAcquisitionCount()));
+        header(out, "db_pool_acquisition_timeouts_total", "counter", "Connection requests that timed out.");
+        pools.forEach((name, pool) -> sample(out, "db_pool_acquisition_timeouts_total", "pool=\"" + name + "\"", pool.getTimeoutCount()));
+        header(out, "db_pool_acquisition_wait_seconds_max", "gauge", "Longest wait for a connection.");
+        pools.forEach((name, pool) -> sample(out, "db_pool_acquisition_wait_seconds_max", "pool=\"" + name + "\"",
+                pool.getMaxAcquisitionWaitMillis() / MILLIS_PER_SECOND));
+    }
+
+    private void writeExecutors(StringBuilder out) {
+        RequestExecutors.Pool[] pools = {requestExecutors.getReadPool(), requestExecutors.getWritePool()};
+
+        header(out, "executor_active_threads", "gauge", "Threads running a request.");
+        for (RequestExecutors.Pool pool : pools) {
+            sample(out, "executor_active_threads", "pool=\"" + pool.getName() + "\"", pool.getActiveThreads());
+        }
+        header(out, "executor_queue_depth", "gauge", "Requests waiting for a thread.");
+        for (RequestExecutors.Pool pool : pools) {
+            sample(out, "executor_queue_depth", "pool=\"" + pool.getName() + "\"", pool.getQueueDepth());
+        }
+        header(out, "executor_completed_total", "counter", "Requests completed.");
+        for (RequestExecutors.Pool pool : pools) {
+            sample(out, "executor_completed_total", "pool=\"" + pool.getName() + "\"", pool.getCompletedCount());
+        }
+        header(out, "executor_rejected_total", "counter", "Requests rejected because the queue was full.");
+        for (RequestExecutors.Pool pool : pools) {
+            sample(out, "executor_rejected_total", "pool=\"" + pool.getName() + "\"", pool.getRejectedCount());
+        }
+    }
+
+    private void writeCaches(StringBuilder out) {
+        Map<String, LruCache<?, ?>> caches = new LinkedHashMap<>();
+        caches.put("user", userRepository.getUserCache());
+        caches.put("authentication", authenticationCache.getCache());
+        caches.put("search_page", searchPageCache.getPages());
+        caches.put("description_dictionary", workDescriptionRepository.getDictionaries());
+
+        header(out, "cache_size", "gauge", "Entries in the cache.");
+        caches.forEach((name, cache) -> sample(out, "cache_size", "cache=\"" + name + "\"", cache.size()));
+        header(out, "cache_hits_total", "counter", "Cache lookups that found an entry.");
+        caches.forEach((name, cache) -> sample(out, "cache_hits_total", "cache=\"" + name + "\"", cache.getHitCount()));
+        header(out, "cache_misses_total", "counter", "Cache lookups that found no entry.");
+        caches.forEach((name, cache) -> sample(out, "cache_misses_total", "cache=\"" + name + "\"", cache.getMissCount()));
+        header(out, "cache_evictions_total", "counter", "Entries evicted from the cache.");
+        caches.forEach((name, cache) -> sample(out, "cache_evictions_total", "cache=\"" + name + "\"", cache.getEvictionCount()));
+    }
+
+    private static String poolLabel(String pool, String state) {
+        return "pool=\"" + pool + "\",state=\"" + state + "\"";
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String metric, String labels, double value) {
+        labels(out.append(metric), labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String metric, String labels, long value) {
+        labels(out.append(metric), labels).append(' ').append(value).append('\n');
+    }
+
+    private static StringBuilder labels(StringBuilder out, String labels) {
+        return labels.isEmpty() ? out : out.append('{').append(labels).append('}');
+    }
+
+}
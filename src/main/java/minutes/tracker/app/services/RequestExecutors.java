@@ -0,0 +1,170 @@
+package minutes.tracker.app.services;
+
+
+import minutes.tracker.app.dao.QueryStats;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *
+ * Bounded thread pools that run the database work of the asynchronous REST calls, so that slow queries don't hold
+ * the servlet container threads. Reads and writes have separate pools, so that a burst of one cannot starve the
+ * other. The pool sizes can be overridden with system properties:
+ *
+ * Property              | Default | Description
+ * ----------------------|---------|-------------
+ * async.read.threads    | 20      | threads running searches and other reads
+ * async.read.queue      | 200     | reads waiting for a thread, further reads are rejected
+ * async.write.threads   | 10      | threads running saves
+ * async.write.queue     | 100     | saves waiting for a thread, further saves are rejected
+ *
+ * The security context and the query stats of the calling thread are propagated to the pool threads, so that the
+ * statements run by a task are accounted to the request that submitted it.
+ *
+ */
+@Component
+public class RequestExecutors {
+
+    private static final Logger LOGGER = Logger.getLogger(RequestExecutors.class);
+
+    @Autowired
+    private Environment env;
+
+    private Pool readPool;
+    private Pool writePool;
+
+    @PostConstruct
+    public void init() {
+        readPool = new Pool("read", env.getProperty("async.read.threads", Integer.class, 20),
+                env.getProperty("async.read.queue", Integer.class, 200));
+        writePool = new Pool("write", env.getProperty("async.write.threads", Integer.class, 10),
+                env.getProperty("async.write.queue", Integer.class, 100));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readPool.shutdown();
+        writePool.shutdown();
+    }
+
+    /**
+     *
+     * @param task - a read-only task
+     * @return the future result of the task, completed with a RejectedExecutionException if the read pool is full
+     */
+    public <T> CompletableFuture<T> read(Supplier<T> task) {
+        return readPool.submit(task);
+    }
+
+    /**
+     *
+     * @param task - a task that modifies data
+     * @return the future result of the task, completed with a RejectedExecutionException if the write pool is full
+     */
+    public <T> CompletableFuture<T> write(Supplier<T> task) {
+        return writePool.submit(task);
+    }
+
+    public Pool getReadPool() {
+        return readPool;
+    }
+
+    public Pool getWritePool() {
+        return writePool;
+    }
+
+    /**
+     * a bounded thread pool and its saturation metrics
+     */
+    public static class Pool {
+
+        private final String name;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong rejections = new AtomicLong();
+
+        /**
+         * @param name - the pool name, used in the thread names
+         * @param threads - the maximum number of threads
+         * @param queueCapacity - the maximum number of tasks waiting for a thread
+         */
+        public Pool(String name, int threads, int queueCapacity) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("async-" + name + "-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         *
+         * @param task - the task to run
+         * @return the future result of the task, completed with a RejectedExecutionException if the pool is full
+         */
+        public <T> CompletableFuture<T> submit(Supplier<T> task) {
+            try {
+                return CompletableFuture.supplyAsync(task,
+                        (runnable) -> executor.execute(new DelegatingSecurityContextRunnable(QueryStats.wrap(runnable))));
+            } catch (RejectedExecutionException e) {
+                rejections.incrementAndGet();
+                LOGGER.warn("The " + name + " pool is full, request rejected.");
+                CompletableFuture<T> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(e);
+                return rejected;
+            }
+        }
+
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxThreads() {
+            return executor.getMaximumPoolSize();
+        }
+
+        public int getActiveThreads() {
+            return executor.getActiveCount();
+        }
+
+        /**
+         * @return the number of tasks waiting for a thread
+         */
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getCompletedCount() {
+            return executor.getCompletedTaskCount();
+        }
+
+        /**
+         * @return the number of tasks rejected because all the threads were busy and the queue was full
+         */
+        public long getRejectedCount() {
+            return rejections.get();
+        }
+    }
+}
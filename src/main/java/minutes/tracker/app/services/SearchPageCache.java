@@ -0,0 +1,165 @@
+package minutes.tracker.app.services;
+
+
+import minutes.tracker.app.dao.LruCache;
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.model.CountMode;
+import minutes.tracker.app.model.DescriptionMatch;
+import minutes.tracker.app.model.SearchResult;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Time;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ *
+ * Bounded cache of the pages of the work searches by page number, shared by all the users and evicted by least
+ * recent use.
+ *
+ * The keys contain the data version of the user when the search started, @see UserDataVersions. A search that
+ * ran concurrently with a save can't be served after the save, even if it was cached after the eviction of the user.
+ *
+ * Only the pages read on the primary are cached. A replica can still miss the last saves of a user once the sticky
+ * window of ReplicaRoutingDataSource is over, and a stale page cached under the current data version would be served
+ * until the next save.
+ *
+ */
+@Component
+public class SearchPageCache {
+
+    /**
+     * the maximum number of cached pages
+     */
+    public static final int MAX_PAGES = 2000;
+
+    /**
+     * approximate size of a cached page and of a work without its description, in bytes
+     */
+    private static final long PAGE_OVERHEAD_BYTES = 300;
+    private static final long WORK_OVERHEAD_BYTES = 150;
+
+    private final LruCache<PageKey, SearchResult<WorkDTO>> pages = new LruCache<>(MAX_PAGES);
+
+    @Autowired
+    ReplicaRoutingDataSource routingDataSource;
+
+    /**
+     *
+     * @return the key of a search page in the cache
+     */
+    public static PageKey key(String username, String dataVersion, Date fromDate, Date toDate, Time fromTime,
+                              Time toTime, String description, DescriptionMatch descriptionMatch, int pageNumber,
+                              CountMode countMode) {
+        return new PageKey(username, Arrays.asList(dataVersion, millis(fromDate), millis(toDate), millis(fromTime),
+                millis(toTime), description, description != null ? descriptionMatch : null, pageNumber, countMode));
+    }
+
+    /**
+     *
+     * @param key - the search page
+     * @return the cached page, or null if it is not cached
+     */
+    public SearchResult<WorkDTO> find(PageKey key) {
+        return pages.get(key);
+    }
+
+    /**
+     *
+     * caches a search page read by the current transaction, unless it was read on a replica - the page must not be
+     * modified afterwards
+     */
+    public void put(PageKey key, SearchResult<WorkDTO> page) {
+        if (routingDataSource.isCurrentTransactionOnReplica()) {
+            return;
+        }
+
+        pages.put(key, new SearchResult<>(page.getResultsCount(), page.isResultsCountExact(),
+                Collections.unmodifiableList(page.getResult()), page.getNextCursor(), page.getPreviousCursor()));
+    }
+
+    /**
+     *
+     * removes the pages of a user, right away and once the current transaction completes
+     *
+     * @param username - the user whose works are being changed
+     */
+    public void evictUser(String username) {
+        pages.removeKeysIf((key) -> key.username.equals(username));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    pages.removeKeysIf((key) -> key.username.equals(username));
+                }
+            });
+        }
+    }
+
+    /**
+     *
+     * @return the cached pages, to read the hit ratio and eviction counters
+     */
+    public LruCache<PageKey, SearchResult<WorkDTO>> getPages() {
+        return pages;
+    }
+
+    /**
+     *
+     * @return an estimate of the memory used by the cached pages, in bytes
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+
+        for (SearchResult<WorkDTO> page : pages.values()) {
+            bytes += PAGE_OVERHEAD_BYTES;
+            for (WorkDTO work : page.getResult()) {
+                int descriptionLength = work.getDescription() != null ? work.getDescription().length() : 0;
+                bytes += WORK_OVERHEAD_BYTES + 2L * descriptionLength;
+            }
+        }
+
+        return bytes;
+    }
+
+    private static Long millis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    /**
+     * the user and the search parameters of a page
+     */
+    public static final class PageKey {
+
+        private final String username;
+        private final List<Object> parameters;
+
+        private PageKey(String username, List<Object> parameters) {
+            this.username = username;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PageKey that = (PageKey) o;
+
+            return username.equals(that.username) && parameters.equals(that.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * username.hashCode() + parameters.hashCode();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package minutes.tracker.app.services;
+
+
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
+import minutes.tracker.app.model.VersionedResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ *
+ * In-memory version of the data of each user, increased each time the works or the settings of the user change.
+ * The REST services use it to build ETags, and answer 304 (not modified) without querying the database.
+ *
+ * The versions restart when the server restarts, so they are prefixed with the server start time: an ETag from
+ * before a restart never matches. They are not shared between servers, so all the requests of a client must
+ * reach the same server (sticky sessions) for the ETags to be useful.
+ *
+ * A version only describes the data read on the primary: a replica can still be behind it, so the reads made on a
+ * replica have no version, @see #read(String, Supplier)
+ *
+ */
+@Component
+public class UserDataVersions {
+
+    private final long epoch = System.currentTimeMillis();
+
+    /**
+     * increased when the data of all the users may have changed
+     */
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Autowired
+    ReplicaRoutingDataSource routingDataSource;
+
+    /**
+     *
+     * @param username - the user
+     * @return an opaque version of the data of the user, that changes each time the data changes
+     */
+    public String currentVersion(String username) {
+        AtomicLong userVersion = versions.get(username);
+        return epoch + "." + globalVersion.get() + "." + (userVersion != null ? userVersion.get() : 0);
+    }
+
+    /**
+     *
+     * increases the version of a user, right away and once the current transaction completes: a concurrent read
+     * can see the new version with the data from before the commit, but it will be outdated by the second increase.
+     *
+     * @param username - the user whose data is being changed
+     */
+    public void bump(String username) {
+        increment(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    increment(username);
+                }
+            });
+        }
+    }
+
+    /**
+     *
+     * runs a read in one read-only transaction, the version is taken before the data is read: if the data changes
+     * meanwhile, the version is outdated by the change.
+     *
+     * @param username - the user whose data is read
+     * @param read - the read, its service calls join the transaction
+     * @return the result of the read, with the version of the user if the transaction read on the primary only
+     */
+    @Transactional(readOnly = true)
+    public <T> VersionedResult<T> read(String username, Supplier<T> read) {
+        String version = currentVersion(username);
+        T result = read.get();
+        return new VersionedResult<>(result, routingDataSource.isCurrentTransactionOnReplica() ? null : version);
+    }
+
+    /**
+     * changes the versions of all the users, for changes that are not made on behalf of a user - right away and once
+     * the current transaction completes, like @see #bump(String)
+     */
+    public void bumpAll() {
+        globalVersion.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    globalVersion.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void increment(String username) {
+        versions.computeIfAbsent(username, (key) -> new AtomicLong()).incrementAndGet();
+    }
+}
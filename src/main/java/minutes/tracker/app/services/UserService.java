@@ -2,6 +2,7 @@ package minutes.tracker.app.services;
 
 import minutes.tracker.app.dao.UserRepository;
 import minutes.tracker.app.model.User;
+import minutes.tracker.app.security.AuthenticationCache;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
     /**
      *
      * updates the maximum minutes of a given user
@@ -41,9 +48,12 @@ public class UserService {
      */
     @Transactional
     public void updateUserMaxMinutesPerDay(String username, Long newMaxMinutes) {
-        User user = userRepository.findUserByUsername(username);
+        User user = userRepository.loadUserByUsername(username);
 
         if (user != null) {
+            userRepository.evictUser(username);
+            authenticationCache.evictUser(username);
+            userDataVersions.bump(username);
             user.setMaxMinutesPerDay(newMaxMinutes);
         } else {
             LOGGER.info("User with username " + username + " could not have the max minutes updated.");
@@ -74,6 +84,8 @@ public class UserService {
 
         User user = new User(username, new BCryptPasswordEncoder().encode(password), email, DEFAULT_MAX_CAL_PER_DAY);
 
+        userRepository.evictUser(username);
+        authenticationCache.evictUser(username);
         userRepository.save(user);
     }
 
@@ -0,0 +1,107 @@
+package minutes.tracker.app.services;
+
+
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.WorkFileFormat;
+import minutes.tracker.app.dto.serialization.WorkImportParser;
+import minutes.tracker.app.model.WorkImport;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Business service for bulk imports of works, meant for migrating historical timesheets.
+ *
+ * The import file is read as a stream, one line at a time, and the works are saved in batches of IMPORT_BATCH_SIZE,
+ * each one in its own transaction - the memory used does not depend on the size of the file.
+ *
+ * This service is not transactional on purpose, the transactions are started by WorkService for each batch.
+ *
+ */
+@Service
+public class WorkImportService {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkImportService.class);
+
+    public static final int IMPORT_BATCH_SIZE = 500;
+
+    @Autowired
+    WorkService workService;
+
+    /**
+     *
+     * imports works from a CSV or NDJSON stream. If an import with the same key was interrupted, the lines that where
+     * already imported are skipped, so the same file can be sent again to resume it.
+     *
+     * If a line is not valid the import stops, the batches before it stay imported.
+     *
+     * @param username - the currently logged in user
+     * @param importKey - the key of the import, chosen by the client
+     * @param format - the format of the import file
+     * @param input - the content of the import file, in UTF-8
+     * @return - the import, with the number of lines imported so far
+     */
+    public WorkImport importWorks(String username, String importKey, WorkFileFormat format,
+                                  InputStream input) throws IOException {
+
+        WorkImport workImport = workService.startImport(username, importKey);
+
+        if (workImport.isCompleted()) {
+            return workImport;
+        }
+
+        long checkpoint = workImport.getLinesImported();
+        WorkImportParser parser = new WorkImportParser(format);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<WorkDTO> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long lineNumber = 0;
+        long workLines = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            if (line.trim().isEmpty() || (lineNumber == 1 && parser.isHeader(line))) {
+                continue;
+            }
+
+            workLines++;
+
+            if (workLines <= checkpoint) {
+                continue;
+            }
+
+            try {
+                batch.add(parser.parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid work on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                workImport = workService.saveImportBatch(username, importKey, batch);
+                batch.clear();
+
+                LOGGER.info("Import " + importKey + " of user " + username + ": " + workImport.getLinesImported()
+                        + " lines imported.");
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            workService.saveImportBatch(username, importKey, batch);
+        }
+
+        return workService.completeImport(username, importKey);
+    }
+
+}
@@ -1,12 +1,20 @@
 package minutes.tracker.app.services;
 
 
+import minutes.tracker.app.dao.WorkDescriptionRepository;
 import minutes.tracker.app.dao.WorkRepository;
 import minutes.tracker.app.dao.UserRepository;
+import minutes.tracker.app.dao.WorkImportRepository;
 import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.model.CountMode;
+import minutes.tracker.app.model.DescriptionFilter;
+import minutes.tracker.app.model.DescriptionMatch;
 import minutes.tracker.app.model.Work;
 import minutes.tracker.app.model.SearchResult;
 import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.WorkImport;
+import minutes.tracker.app.model.WorkCursor;
+import minutes.tracker.app.model.WorkDescription;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +22,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Time;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static minutes.tracker.app.services.ValidationUtils.assertNotBlank;
@@ -31,15 +46,63 @@ public class WorkService {
 
     private static final Logger LOGGER = Logger.getLogger(WorkService.class);
 
+    /**
+     * the results count limit in the CAPPED count mode
+     */
+    public static final int MAX_COUNTED_RESULTS = 1000;
+
+    /**
+     * the longest text that can be searched in the descriptions
+     */
+    public static final int MAX_DESCRIPTION_SEARCH_LENGTH = 100;
+
     @Autowired
     WorkRepository workRepository;
 
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    WorkImportRepository workImportRepository;
+
+    @Autowired
+    DailyMinutesService dailyMinutesService;
+
+    @Autowired
+    UserDataVersions userDataVersions;
+
+    @Autowired
+    SearchPageCache searchPageCache;
+
+    @Autowired
+    WorkDescriptionRepository workDescriptionRepository;
+
+    /**
+     *
+     * searches works by date/time, with an exact results count
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param pageNumber - the page number (each page has 10 entries)
+     * @return - the found results
+     */
+    @Transactional(readOnly = true)
+    public SearchResult<WorkDTO> findWorks(String username, Date fromDate, Date toDate, Time fromTime, Time toTime, int pageNumber) {
+        return findWorks(username, fromDate, toDate, fromTime, toTime, pageNumber, CountMode.EXACT);
+    }
+
     /**
      *
-     * searches works by date/time
+     * searches works by date/time.
+     *
+     * The page is fetched with one extra row: if there is no extra row the total is known from the page itself and
+     * the results are not counted, so most searches take a single query. Otherwise the count mode decides if the results
+     * are counted exactly, up to MAX_COUNTED_RESULTS, or not at all.
+     *
+     * The pages are cached until the works of the user change, @see SearchPageCache
      *
      * @param username - the currently logged in user
      * @param fromDate - search from this date, including
@@ -47,11 +110,221 @@ public class WorkService {
      * @param fromTime - search from this time, including
      * @param toTime - search to this time, including
      * @param pageNumber - the page number (each page has 10 entries)
+     * @param countMode - how the results are counted
      * @return - the found results
      */
     @Transactional(readOnly = true)
-    public SearchResult<Work> findWorks(String username, Date fromDate, Date toDate, Time fromTime, Time toTime, int pageNumber) {
+    public SearchResult<WorkDTO> findWorks(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                       int pageNumber, CountMode countMode) {
+        return findWorks(username, fromDate, toDate, fromTime, toTime, null, null, pageNumber, countMode);
+    }
+
+    /**
+     *
+     * searches works by date/time and description, @see #findWorks(String, Date, Date, Time, Time, int, CountMode)
+     *
+     * The description is looked up in the description catalog of the user, @see WorkDescriptionRepository
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param description - the searched text in the descriptions, ignoring the case, null or blank for any description
+     * @param descriptionMatch - how the description is matched, contains by default
+     * @param pageNumber - the page number (each page has 10 entries)
+     * @param countMode - how the results are counted
+     * @return - the found results
+     */
+    @Transactional(readOnly = true)
+    public SearchResult<WorkDTO> findWorks(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                       String description, DescriptionMatch descriptionMatch,
+                                       int pageNumber, CountMode countMode) {
+
+        assertValidSearch(fromDate, toDate, fromTime, toTime);
+        notNull(countMode, "countMode is mandatory");
+
+        if (pageNumber < 1) {
+            throw new IllegalArgumentException("The page number must be at least 1.");
+        }
+
+        SearchPageCache.PageKey pageKey = SearchPageCache.key(username, userDataVersions.currentVersion(username),
+                fromDate, toDate, fromTime, toTime, searchedDescription(description), descriptionMatch, pageNumber,
+                countMode);
+        SearchResult<WorkDTO> cachedPage = searchPageCache.find(pageKey);
+
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+
+        DescriptionFilter descriptionFilter = descriptionFilter(username, description, descriptionMatch);
+
+        List<WorkDTO> works = workRepository.findWorksByDateTime(username, fromDate, toDate, fromTime, toTime,
+                descriptionFilter, pageNumber, WorkRepository.PAGE_SIZE + 1);
+
+        boolean hasNext = works.size() > WorkRepository.PAGE_SIZE;
+
+        if (hasNext) {
+            works = works.subList(0, WorkRepository.PAGE_SIZE);
+        }
+
+        long offset = (long) (pageNumber - 1) * WorkRepository.PAGE_SIZE;
+        long resultsCount = offset + works.size();
+        boolean resultsCountExact = true;
+
+        // an empty page past the first one does not tell where the results end
+        boolean lastPageFound = !hasNext && (!works.isEmpty() || pageNumber == 1);
+
+        if (!lastPageFound) {
+            switch (countMode) {
+                case EXACT:
+                    resultsCount = workRepository.countWorksByDateTime(username, fromDate, toDate, fromTime, toTime,
+                            descriptionFilter);
+                    break;
+                case CAPPED:
+                    long cappedCount = workRepository.countWorksByDateTimeUpTo(username, fromDate, toDate, fromTime,
+                            toTime, descriptionFilter, MAX_COUNTED_RESULTS + 1);
+                    resultsCountExact = cappedCount <= MAX_COUNTED_RESULTS;
+                    resultsCount = Math.max(resultsCount, Math.min(cappedCount, MAX_COUNTED_RESULTS));
+                    break;
+                case NONE:
+                    resultsCountExact = false;
+                    resultsCount = hasNext ? resultsCount + 1 : resultsCount;
+                    break;
+            }
+        }
+
+        boolean hasPrevious = pageNumber > 1 && !works.isEmpty();
+
+        SearchResult<WorkDTO> page = new SearchResult<>(resultsCount, resultsCountExact, works,
+                hasNext ? nextCursor(works) : null,
+                hasPrevious ? previousCursor(works) : null);
+
+        searchPageCache.put(pageKey, page);
+
+        return page;
+    }
+
+    /**
+     *
+     * searches works by date/time, starting at a cursor position (keyset pagination). The results are not counted,
+     * so the cost of the search is the same no matter how deep the page is.
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param encodedCursor - a cursor previously returned by a search
+     * @return - the found results, with the cursors of the neighbour pages. The results count is always zero.
+     */
+    @Transactional(readOnly = true)
+    public SearchResult<WorkDTO> findWorksFromCursor(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                                  String encodedCursor) {
+        return findWorksFromCursor(username, fromDate, toDate, fromTime, toTime, null, null, encodedCursor);
+    }
+
+    /**
+     *
+     * searches works by date/time and description, starting at a cursor position,
+     * @see #findWorksFromCursor(String, Date, Date, Time, Time, String)
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - search from this date, including
+     * @param toDate - search until this date, including
+     * @param fromTime - search from this time, including
+     * @param toTime - search to this time, including
+     * @param description - the searched text in the descriptions, ignoring the case, null or blank for any description
+     * @param descriptionMatch - how the description is matched, contains by default
+     * @param encodedCursor - a cursor previously returned by a search
+     * @return - the found results, with the cursors of the neighbour pages. The results count is always zero.
+     */
+    @Transactional(readOnly = true)
+    public SearchResult<WorkDTO> findWorksFromCursor(String username, Date fromDate, Date toDate, Time fromTime, Time toTime,
+                                                  String description, DescriptionMatch descriptionMatch,
+                                                  String encodedCursor) {
+
+        assertValidSearch(fromDate, toDate, fromTime, toTime);
+        assertNotBlank(encodedCursor, "cursor cannot be blank");
+
+        WorkCursor cursor = WorkCursor.decode(encodedCursor);
+        DescriptionFilter descriptionFilter = descriptionFilter(username, description, descriptionMatch);
+
+        // one extra row is fetched to know if there are more pages in the cursor direction
+        List<WorkDTO> works = workRepository.findWorksByDateTimeFromCursor(username, fromDate, toDate, fromTime, toTime,
+                descriptionFilter, cursor, WorkRepository.PAGE_SIZE + 1);
+
+        boolean hasMore = works.size() > WorkRepository.PAGE_SIZE;
+        boolean forward = cursor.getDirection() == WorkCursor.Direction.AFTER;
+
+        if (hasMore) {
+            works = forward ? works.subList(0, WorkRepository.PAGE_SIZE) : works.subList(1, works.size());
+        }
+
+        if (works.isEmpty()) {
+            return new SearchResult<>(0, works, null, null);
+        }
+
+        // the cursor row itself is on the page we came from
+        boolean hasNext = !forward || hasMore;
+        boolean hasPrevious = forward || hasMore;
+
+        return new SearchResult<>(0, works,
+                hasNext ? nextCursor(works) : null,
+                hasPrevious ? previousCursor(works) : null);
+    }
+
+    /**
+     *
+     * reads all the works of a user in a date range, in chronological order, passing them one by one to a consumer.
+     *
+     * This method is not transactional on purpose: the works are read on a forward-only cursor outside of any
+     * persistence context, so that exporting years of data does not grow the heap.
+     *
+     * @param username - the currently logged in user
+     * @param fromDate - export from this date, including
+     * @param toDate - export until this date, including
+     * @param consumer - called for each work
+     */
+    public void exportWorks(String username, Date fromDate, Date toDate, Consumer<WorkDTO> consumer) {
+        assertNotBlank(username, "username cannot be blank");
+        assertValidSearch(fromDate, toDate, null, null);
+        notNull(consumer, "consumer is mandatory");
+
+        workRepository.scrollWorksByDate(username, fromDate, toDate, consumer);
+    }
+
+    private String nextCursor(List<WorkDTO> page) {
+        WorkDTO last = page.get(page.size() - 1);
+        return WorkCursor.after(last.getDate(), last.getTime(), last.getId()).encode();
+    }
+
+    private String previousCursor(List<WorkDTO> page) {
+        WorkDTO first = page.get(0);
+        return WorkCursor.before(first.getDate(), first.getTime(), first.getId()).encode();
+    }
+
+    private static String searchedDescription(String description) {
+        return description != null && !description.trim().isEmpty() ? description.trim() : null;
+    }
+
+    private DescriptionFilter descriptionFilter(String username, String description, DescriptionMatch descriptionMatch) {
+        String searched = searchedDescription(description);
+
+        if (searched == null) {
+            return null;
+        }
 
+        if (searched.length() > MAX_DESCRIPTION_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("The searched description cannot be longer than "
+                    + MAX_DESCRIPTION_SEARCH_LENGTH + " characters.");
+        }
+
+        return workDescriptionRepository.findMatchingDescriptions(username, searched,
+                descriptionMatch != null ? descriptionMatch : DescriptionMatch.CONTAINS);
+    }
+
+    private void assertValidSearch(Date fromDate, Date toDate, Time fromTime, Time toTime) {
         if (fromDate == null || toDate == null) {
             throw new IllegalArgumentException("Both the from and to date are needed.");
         }
@@ -63,24 +336,38 @@ public class WorkService {
         if (fromDate.equals(toDate) && fromTime != null && toTime != null && fromTime.after(toTime)) {
             throw new IllegalArgumentException("On searches on the same day, from time cannot be after to time.");
         }
-
-        Long resultsCount = workRepository.countWorksByDateTime(username, fromDate, toDate, fromTime, toTime);
-
-        List<Work> works = workRepository.findWorksByDateTime(username, fromDate, toDate, fromTime, toTime, pageNumber);
-
-        return new SearchResult<>(resultsCount, works);
     }
 
     /**
      *
-     * deletes a list of works, given their Ids
+     * deletes a list of works of the given user, given their Ids. Works of other users are not deleted.
+     * The daily minutes of the user are updated in the same transaction.
      *
+     * @param username - the currently logged in user
      * @param deletedWorkIds - the list of works to delete
+     * @return - the ids of the works that where deleted
      */
     @Transactional
-    public void deleteWorks(List<Long> deletedWorkIds) {
+    public List<Long> deleteWorks(String username, List<Long> deletedWorkIds) {
+        assertNotBlank(username, "username cannot be blank");
         notNull(deletedWorkIds, "deletedWorksId is mandatory");
-        deletedWorkIds.stream().forEach((deletedWorkId) -> workRepository.delete(deletedWorkId));
+
+        userDataVersions.bump(username);
+        searchPageCache.evictUser(username);
+
+        Set<Long> uniqueIds = deletedWorkIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        List<WorkDTO> deletedWorks = workRepository.deleteUserWorks(username, uniqueIds);
+
+        if (!deletedWorks.isEmpty()) {
+            Map<Date, Long> minutesByDay = DailyMinutesService.newMinutesByDay();
+            deletedWorks.forEach((work) -> DailyMinutesService.collect(minutesByDay, work.getDate(), -work.getMinutes()));
+            dailyMinutesService.addMinutes(userRepository.findUserByUsername(username), minutesByDay);
+        }
+
+        return deletedWorks.stream().map(WorkDTO::getId).collect(Collectors.toList());
     }
 
     /**
@@ -98,52 +385,179 @@ public class WorkService {
 
     @Transactional
     public Work saveWork(String username, Long id, Date date, Time time, String description, Long minutes) {
+        return saveWorks(username, Collections.singletonList(new WorkDTO(id, date, time, description, minutes))).get(0);
+    }
+
+    /**
+     *
+     * saves a list of works (new or not) into the database.
+     *
+     * The existing works are loaded with one query, and the user only once - no queries are made while the works are
+     * being saved, so all the inserts and updates are flushed together at commit time, in JDBC batches. The
+     * descriptions are looked up in the description catalog of the user, only the new ones are inserted.
+     * The daily minutes of the user are updated at the end, in the same transaction.
+     *
+     * @param username - the currently logged in user
+     * @param works - the list of works to be saved
+     * @return - the new versions of the saved works
+     */
+    @Transactional
+    public List<Work> saveWorks(String username, List<WorkDTO> works) {
 
         assertNotBlank(username, "username cannot be blank");
-        notNull(date, "date is mandatory");
-        notNull(time, "time is mandatory");
-        notNull(description, "description is mandatory");
-        notNull(minutes, "minutes is mandatory");
+        notNull(works, "works is mandatory");
 
-        Work work = null;
+        userDataVersions.bump(username);
+        searchPageCache.evictUser(username);
 
-        if (id != null) {
-            work = workRepository.findWorkById(id);
+        Set<Long> existingIds = works.stream()
+                .map(WorkDTO::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
 
-            work.setDate(date);
-            work.setTime(time);
-            work.setDescription(description);
-            work.setMinutes(minutes);
-        } else {
+        Map<Long, Work> existingWorks = existingIds.isEmpty() ? Collections.emptyMap() :
+                workRepository.findUserWorksByIds(username, existingIds).stream()
+                        .collect(Collectors.toMap(Work::getId, Function.identity()));
+
+        User user = existingIds.size() < works.size() ? userRepository.findUserByUsername(username) : null;
+        User owner = user != null ? user : existingWorks.values().stream().map(Work::getUser).findFirst().orElse(null);
+        Map<Date, Long> minutesByDay = DailyMinutesService.newMinutesByDay();
+
+        // the catalog entries of all the descriptions are found or created at once
+        Map<String, WorkDescription> descriptions = owner == null ? Collections.emptyMap() :
+                workDescriptionRepository.findOrCreate(owner, works.stream()
+                        .map(WorkDTO::getDescription)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+
+        List<Work> savedWorks = works.stream()
+                .map((work) -> saveWork(username, user, existingWorks, descriptions, work, minutesByDay))
+                .collect(Collectors.toList());
+
+        if (owner != null) {
+            dailyMinutesService.addMinutes(owner, minutesByDay);
+        }
+
+        return savedWorks;
+    }
+
+    /**
+     *
+     * finds the import with the given key, or starts a new one if it does not exist yet
+     *
+     * @param username - the currently logged in user
+     * @param importKey - the key of the import, chosen by the client
+     * @return - the import, with the number of lines already imported
+     */
+    @Transactional
+    public WorkImport startImport(String username, String importKey) {
+        assertNotBlank(importKey, "importKey cannot be blank");
+
+        WorkImport workImport = workImportRepository.findImport(username, importKey);
+
+        if (workImport == null) {
             User user = userRepository.findUserByUsername(username);
 
-            if (user != null) {
-                work = workRepository.save(new Work(user, date, time, description, minutes));
-                LOGGER.warn("A work was attempted to be saved for a non-existing user: " + username);
+            if (user == null) {
+                throw new IllegalArgumentException("User " + username + " not found.");
             }
+
+            workImport = new WorkImport(user, importKey);
+            workImportRepository.save(workImport);
         }
 
-        return work;
+        return workImport;
     }
 
     /**
      *
-     * saves a list of works (new or not) into the database
+     * saves a batch of imported works, and moves the import checkpoint past them in the same transaction
      *
      * @param username - the currently logged in user
-     * @param works - the list of works to be saved
-     * @return - the new versions of the saved works
+     * @param importKey - the key of a started import
+     * @param works - the new works to save
+     * @return - the import, with the updated number of lines imported
      */
     @Transactional
-    public List<Work> saveWorks(String username, List<WorkDTO> works) {
-        return works.stream()
-                .map((work) -> saveWork(
-                        username,
-                        work.getId(),
-                        work.getDate(),
-                        work.getTime(),
-                        work.getDescription(),
-                        work.getMinutes()))
-                .collect(Collectors.toList());
+    public WorkImport saveImportBatch(String username, String importKey, List<WorkDTO> works) {
+        WorkImport workImport = findOpenImport(username, importKey);
+
+        saveWorks(username, works);
+        workImport.setLinesImported(workImport.getLinesImported() + works.size());
+
+        return workImport;
+    }
+
+    /**
+     *
+     * marks an import as completed - sending the same file again with the same key will not import anything
+     *
+     * @param username - the currently logged in user
+     * @param importKey - the key of a started import
+     * @return - the completed import
+     */
+    @Transactional
+    public WorkImport completeImport(String username, String importKey) {
+        WorkImport workImport = findOpenImport(username, importKey);
+        workImport.setCompleted(true);
+        return workImport;
+    }
+
+    /**
+     *
+     * @param username - the currently logged in user
+     * @param importKey - the key of the import
+     * @return - the import with the given key, or null if not found
+     */
+    @Transactional(readOnly = true)
+    public WorkImport findImport(String username, String importKey) {
+        return workImportRepository.findImport(username, importKey);
+    }
+
+    private WorkImport findOpenImport(String username, String importKey) {
+        WorkImport workImport = workImportRepository.findImport(username, importKey);
+
+        if (workImport == null || workImport.isCompleted()) {
+            throw new IllegalArgumentException("Import " + importKey + " is not in progress.");
+        }
+
+        return workImport;
+    }
+
+    private Work saveWork(String username, User user, Map<Long, Work> existingWorks,
+                          Map<String, WorkDescription> descriptions, WorkDTO workDTO, Map<Date, Long> minutesByDay) {
+
+        notNull(workDTO.getDate(), "date is mandatory");
+        notNull(workDTO.getTime(), "time is mandatory");
+        notNull(workDTO.getDescription(), "description is mandatory");
+        notNull(workDTO.getMinutes(), "minutes is mandatory");
+
+        Work work = null;
+
+        if (workDTO.getId() != null) {
+            work = existingWorks.get(workDTO.getId());
+
+            if (work == null) {
+                throw new IllegalArgumentException("Work " + workDTO.getId() + " not found.");
+            }
+
+            DailyMinutesService.collect(minutesByDay, work.getDate(), -work.getMinutes());
+            DailyMinutesService.collect(minutesByDay, workDTO.getDate(), workDTO.getMinutes());
+
+            work.setDate(workDTO.getDate());
+            work.setTime(workDTO.getTime());
+            work.setDescription(descriptions.get(workDTO.getDescription()));
+            work.setMinutes(workDTO.getMinutes());
+        } else {
+            if (user != null) {
+                work = workRepository.save(new Work(user, workDTO.getDate(), workDTO.getTime(),
+                        descriptions.get(workDTO.getDescription()), workDTO.getMinutes()));
+                DailyMinutesService.collect(minutesByDay, workDTO.getDate(), workDTO.getMinutes());
+            } else {
+                LOGGER.warn("A work was attempted to be saved for a non-existing user: " + username);
+            }
+        }
+
+        return work;
     }
 }
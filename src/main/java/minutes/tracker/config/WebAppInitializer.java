@@ -7,8 +7,14 @@ import minutes.tracker.config.root.RootContextConfig;
 import minutes.tracker.config.root.TestConfiguration;
 import minutes.tracker.config.servlet.ServletContextConfig;
 
+import org.apache.log4j.LogManager;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.ServletException;
+
 /**
  *
  * Replacement for most of the content of web.xml, sets up the root and the servlet context config.
@@ -32,6 +38,25 @@ public class WebAppInitializer extends AbstractAnnotationConfigDispatcherServlet
         return new String[]{"/"};
     }
 
+    /**
+     * the log events are written by the background thread of the async appender, they are flushed when the
+     * application stops - the listener is added first, so that it runs after the Spring contexts are closed
+     */
+    @Override
+    public void onStartup(ServletContext servletContext) throws ServletException {
+        servletContext.addListener(new ServletContextListener() {
+            @Override
+            public void contextInitialized(ServletContextEvent event) {
+            }
+
+            @Override
+            public void contextDestroyed(ServletContextEvent event) {
+                LogManager.shutdown();
+            }
+        });
+        super.onStartup(servletContext);
+    }
+
 
 
 
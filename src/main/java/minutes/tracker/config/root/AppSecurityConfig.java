@@ -4,12 +4,16 @@ package minutes.tracker.config.root;
 import com.allanditzel.springframework.security.web.csrf.CsrfTokenResponseHeaderBindingFilter;
 
 import minutes.tracker.app.security.AjaxAuthenticationSuccessHandler;
+import minutes.tracker.app.security.AuthenticationCache;
+import minutes.tracker.app.security.CachingAuthenticationProvider;
 import minutes.tracker.app.security.SecurityUserDetailsService;
+import minutes.tracker.app.services.LatencyMetrics;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -40,9 +44,24 @@ public class AppSecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     DataSource dataSource;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private LatencyMetrics latencyMetrics;
+
+    /**
+     * the credentials are verified against the database with BCrypt, and the successful authentications are reused
+     * for a short time, @see AuthenticationCache
+     */
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(new BCryptPasswordEncoder());
+        DaoAuthenticationProvider databaseProvider = new DaoAuthenticationProvider();
+        databaseProvider.setUserDetailsService(userDetailsService);
+        databaseProvider.setPasswordEncoder(new BCryptPasswordEncoder());
+        databaseProvider.afterPropertiesSet();
+
+        auth.authenticationProvider(new CachingAuthenticationProvider(databaseProvider, authenticationCache, latencyMetrics));
     }
 
     @Override
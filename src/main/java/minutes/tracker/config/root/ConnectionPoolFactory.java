@@ -0,0 +1,112 @@
+package minutes.tracker.config.root;
+
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
+
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Creates the HikariCP connection pools of the application. The pool settings can be overridden with system
+ * properties, for example -Ddb.pool.maxSize=20
+ *
+ * Property                      | Default | Description
+ * ------------------------------|---------|-------------
+ * db.pool.minIdle               | 2       | idle connections kept open
+ * db.pool.maxSize               | 10      | maximum open connections
+ * db.pool.connectionTimeoutMs   | 5000    | how long a thread waits for a connection before failing
+ * db.pool.validationTimeoutMs   | 1000    | how long a connection validity check can take
+ * db.pool.idleTimeoutMs         | 600000  | idle connections above minIdle are closed after this time
+ * db.pool.maxLifetimeMs         | 1800000 | connections are replaced after this time
+ *
+ * Connections are validated with JDBC4 Connection.isValid() when they are borrowed after being idle.
+ *
+ * Read-only transactions can be sent to replica databases, @see ReplicaRoutingDataSource
+ *
+ * Property                      | Default | Description
+ * ------------------------------|---------|-------------
+ * db.replica.urls               |         | comma separated JDBC urls of the replicas, they use the primary pool settings
+ * db.replica.stickyWindowMs     | 5000    | how long the reads of a user go to the primary after one of its writes
+ *
+ * The statements of all the pools are monitored, @see QueryMonitoringDataSource
+ *
+ * Property                      | Default | Description
+ * ------------------------------|---------|-------------
+ * db.slowQuery.thresholdMs      | 100     | statements taking at least this long are logged with their bind values
+ * db.slowQuery.explain          | false   | also log the execution plan of the slow selects, on PostgreSQL only
+ *
+ */
+public final class ConnectionPoolFactory {
+
+    private ConnectionPoolFactory() {
+    }
+
+    /**
+     *
+     * @param env - the environment to read the pool settings from
+     * @param poolName - the name of the pool, used in the logs and metrics
+     * @param metrics - receives the pool saturation metrics
+     * @return the pool configuration, to which the caller adds the connection settings
+     */
+    public static HikariConfig poolConfig(Environment env, String poolName, MetricsTrackerFactory metrics) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setMinimumIdle(env.getProperty("db.pool.minIdle", Integer.class, 2));
+        config.setMaximumPoolSize(env.getProperty("db.pool.maxSize", Integer.class, 10));
+        config.setConnectionTimeout(env.getProperty("db.pool.connectionTimeoutMs", Long.class, 5000L));
+        config.setValidationTimeout(env.getProperty("db.pool.validationTimeoutMs", Long.class, 1000L));
+        config.setIdleTimeout(env.getProperty("db.pool.idleTimeoutMs", Long.class, 600000L));
+        config.setMaxLifetime(env.getProperty("db.pool.maxLifetimeMs", Long.class, 1800000L));
+        config.setMetricsTrackerFactory(metrics);
+        return config;
+    }
+
+    /**
+     *
+     * creates the primary pool, and one read-only pool per replica, with the same settings as the primary
+     *
+     * @param env - the environment to read the replica settings from
+     * @param primaryConfig - the complete configuration of the primary pool
+     * @param defaultReplicaUrls - the replica urls to use if db.replica.urls is not set, can be empty
+     * @return a routing datasource, to be wrapped in a LazyConnectionDataSourceProxy
+     */
+    public static ReplicaRoutingDataSource routingDataSource(Environment env, HikariConfig primaryConfig,
+                                                             String defaultReplicaUrls) {
+        String replicaUrls = env.getProperty("db.replica.urls", defaultReplicaUrls);
+        List<DataSource> replicas = new ArrayList<>();
+
+        for (String replicaUrl : StringUtils.commaDelimitedListToStringArray(replicaUrls)) {
+            HikariConfig replicaConfig = new HikariConfig();
+            primaryConfig.copyState(replicaConfig);
+            replicaConfig.setPoolName(primaryConfig.getPoolName() + "-replica-" + replicas.size());
+            replicaConfig.setJdbcUrl(replicaUrl.trim());
+            replicaConfig.setReadOnly(true);
+            replicas.add(new HikariDataSource(replicaConfig));
+        }
+
+        return new ReplicaRoutingDataSource(new HikariDataSource(primaryConfig), replicas,
+                env.getProperty("db.replica.stickyWindowMs", Long.class, 5000L));
+    }
+
+    /**
+     *
+     * @param env - the environment to read the monitoring settings from
+     * @param routingDataSource - the datasource of the primary and replica pools
+     * @return a monitoring datasource, to be wrapped in a LazyConnectionDataSourceProxy
+     */
+    public static QueryMonitoringDataSource monitoringDataSource(Environment env, DataSource routingDataSource) {
+        return new QueryMonitoringDataSource(routingDataSource,
+                env.getProperty("db.slowQuery.thresholdMs", Long.class, 100L),
+                env.getProperty("db.slowQuery.explain", Boolean.class, false));
+    }
+}
@@ -1,17 +1,26 @@
 package minutes.tracker.config.root;
 
 
+import com.zaxxer.hikari.HikariConfig;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
 import org.springframework.instrument.classloading.InstrumentationLoadTimeWeaver;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import minutes.tracker.app.dao.ConnectionPoolMetrics;
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
 import minutes.tracker.app.init.TestDataInitializer;
 
+import javax.sql.DataSource;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,23 +37,49 @@ import java.util.Map;
 @EnableTransactionManagement
 public class DevelopmentConfiguration {
 
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
     @Bean(initMethod = "init")
     public TestDataInitializer initTestData() {
         return new TestDataInitializer();
     }
 
+    @Bean(name = "routingDatasource")
+    public ReplicaRoutingDataSource routingDataSource() {
+        HikariConfig config = ConnectionPoolFactory.poolConfig(env, "minutes-tracker", connectionPoolMetrics);
+        config.setDriverClassName("org.postgresql.Driver");
+        config.setJdbcUrl("jdbc:postgresql://localhost:5432/minute-tracker?loglevel=0");
+        config.setUsername("postgres");
+        config.setPassword("postgres");
+        // server side prepared statements for the statements executed at least 3 times on a connection
+        config.addDataSourceProperty("prepareThreshold", env.getProperty("db.pool.prepareThreshold", "3"));
+        return ConnectionPoolFactory.routingDataSource(env, config, "");
+    }
+
+    /**
+     * logs the slow statements and accounts the statements of each request, @see QueryMonitoringDataSource
+     */
+    @Bean
+    public QueryMonitoringDataSource queryMonitoringDataSource(ReplicaRoutingDataSource routingDataSource) {
+        return ConnectionPoolFactory.monitoringDataSource(env, routingDataSource);
+    }
+
+    /**
+     * the connection is only obtained from the routing datasource at the first statement, once the read-only flag
+     * of the transaction is known
+     */
+    @Primary
     @Bean(name = "datasource")
-    public DriverManagerDataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.postgresql.Driver");
-        dataSource.setUrl("jdbc:postgresql://localhost:5432/minute-tracker?loglevel=0");
-        dataSource.setUsername("postgres");
-        dataSource.setPassword("postgres");
-        return dataSource;
+    public DataSource dataSource(QueryMonitoringDataSource queryMonitoringDataSource) {
+        return new LazyConnectionDataSourceProxy(queryMonitoringDataSource);
     }
 
     @Bean(name = "entityManagerFactory")
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DriverManagerDataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
 
         LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
         entityManagerFactoryBean.setDataSource(dataSource);
@@ -54,9 +89,11 @@ public class DevelopmentConfiguration {
 
         Map<String, Object> jpaProperties = new HashMap<String, Object>();
         jpaProperties.put("hibernate.hbm2ddl.auto", "create-drop");
-        jpaProperties.put("hibernate.show_sql", "true");
-        jpaProperties.put("hibernate.format_sql", "true");
         jpaProperties.put("hibernate.use_sql_comments", "true");
+        jpaProperties.put("hibernate.jdbc.batch_size", "50");
+        jpaProperties.put("hibernate.jdbc.batch_versioned_data", "true");
+        jpaProperties.put("hibernate.order_inserts", "true");
+        jpaProperties.put("hibernate.order_updates", "true");
         jpaProperties.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
         entityManagerFactoryBean.setJpaPropertyMap(jpaProperties);
 
@@ -4,11 +4,12 @@ package minutes.tracker.config.root;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 
 /**
  *
@@ -18,13 +19,14 @@ import javax.persistence.EntityManagerFactory;
  */
 
 @Configuration
+@EnableScheduling
 @ComponentScan({"minutes.tracker.app.services", "minutes.tracker.app.dao",
         "minutes.tracker.app.init", " minutes.tracker.app.security"})
 public class RootContextConfig {
 
     @Bean(name = "transactionManager")
     public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
-                                                         DriverManagerDataSource dataSource) {
+                                                         DataSource dataSource) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
         transactionManager.setEntityManagerFactory(entityManagerFactory);
         transactionManager.setDataSource(dataSource);
@@ -1,19 +1,29 @@
 package minutes.tracker.config.root;
 
 
+import com.zaxxer.hikari.HikariConfig;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
 import org.springframework.instrument.classloading.InstrumentationLoadTimeWeaver;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import minutes.tracker.app.dao.ConnectionPoolMetrics;
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
 import minutes.tracker.app.init.TestDataInitializer;
 
+import javax.sql.DataSource;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -33,23 +43,57 @@ import java.util.Map;
 @EnableTransactionManagement
 public class TestConfiguration {
 
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    private final String databaseUrl = "jdbc:hsqldb:mem:mydb-" + UUID.randomUUID();
+
     @Bean(initMethod = "init")
     public TestDataInitializer initTestData() {
         return new TestDataInitializer();
     }
 
+    /**
+     * each application context gets its own in-memory database - the integration tests start several contexts, and
+     * each one recreates the schema and inserts the test data when it starts, under the contexts already running.
+     *
+     * Unless db.replica.urls is set, a second read-only pool on the same database plays the replica, so that the
+     * read-only transactions go through the replica routing.
+     */
+    @Bean(name = "routingDatasource")
+    public ReplicaRoutingDataSource routingDataSource() {
+        HikariConfig config = ConnectionPoolFactory.poolConfig(env, "minutes-tracker", connectionPoolMetrics);
+        config.setDriverClassName(org.hsqldb.jdbcDriver.class.getName());
+        config.setJdbcUrl(databaseUrl);
+        config.setUsername("sa");
+        config.setPassword("jdbc:hsqldb:mem:mydb");
+        return ConnectionPoolFactory.routingDataSource(env, config, databaseUrl);
+    }
+
+    /**
+     * monitors the statements of the primary and replica connections, its counts are used by the statement budgets
+     * of the tests
+     */
+    @Bean
+    public QueryMonitoringDataSource queryMonitoringDataSource(ReplicaRoutingDataSource routingDataSource) {
+        return ConnectionPoolFactory.monitoringDataSource(env, routingDataSource);
+    }
+
+    /**
+     * the connection is only obtained from the routing datasource at the first statement, once the read-only flag
+     * of the transaction is known
+     */
+    @Primary
     @Bean(name = "datasource")
-    public DriverManagerDataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(org.hsqldb.jdbcDriver.class.getName());
-        dataSource.setUrl("jdbc:hsqldb:mem:mydb");
-        dataSource.setUsername("sa");
-        dataSource.setPassword("jdbc:hsqldb:mem:mydb");
-        return dataSource;
+    public DataSource dataSource(QueryMonitoringDataSource queryMonitoringDataSource) {
+        return new LazyConnectionDataSourceProxy(queryMonitoringDataSource);
     }
 
     @Bean(name = "entityManagerFactory")
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DriverManagerDataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
 
         LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
         entityManagerFactoryBean.setDataSource(dataSource);
@@ -59,9 +103,11 @@ public class TestConfiguration {
 
         Map<String, Object> jpaProperties = new HashMap<String, Object>();
         jpaProperties.put("hibernate.hbm2ddl.auto", "create");
-        jpaProperties.put("hibernate.show_sql", "true");
-        jpaProperties.put("hibernate.format_sql", "true");
         jpaProperties.put("hibernate.use_sql_comments", "true");
+        jpaProperties.put("hibernate.jdbc.batch_size", "50");
+        jpaProperties.put("hibernate.jdbc.batch_versioned_data", "true");
+        jpaProperties.put("hibernate.order_inserts", "true");
+        jpaProperties.put("hibernate.order_updates", "true");
         entityManagerFactoryBean.setJpaPropertyMap(jpaProperties);
 
         return entityManagerFactoryBean;
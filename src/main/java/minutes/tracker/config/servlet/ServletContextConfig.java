@@ -1,9 +1,15 @@
 package minutes.tracker.config.servlet;
 
 
+import minutes.tracker.app.controllers.LatencyInterceptor;
+import minutes.tracker.app.controllers.QueryAccountingInterceptor;
+import minutes.tracker.app.services.LatencyMetrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
@@ -19,6 +25,17 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 @ComponentScan("minutes.tracker.app.controllers")
 public class ServletContextConfig extends WebMvcConfigurerAdapter {
 
+    @Autowired
+    private LatencyMetrics latencyMetrics;
+
+    /**
+     * the latency and the database work of every handler are recorded, and published at /metrics
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new LatencyInterceptor(latencyMetrics));
+        registry.addInterceptor(new QueryAccountingInterceptor(latencyMetrics));
+    }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
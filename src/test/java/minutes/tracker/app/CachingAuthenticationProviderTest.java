@@ -0,0 +1,98 @@
+package minutes.tracker.app;
+
+
+import minutes.tracker.app.security.AuthenticationCache;
+import minutes.tracker.app.security.CachingAuthenticationProvider;
+import minutes.tracker.app.security.SecurityUserDetailsService;
+import minutes.tracker.app.services.LatencyHistogram;
+import minutes.tracker.app.services.LatencyMetrics;
+import minutes.tracker.app.services.UserService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes={TestConfiguration.class, RootContextConfig.class})
+public class CachingAuthenticationProviderTest {
+
+    private static final String PASSWORD = "Password2";
+
+    @Autowired
+    private SecurityUserDetailsService userDetailsService;
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LatencyMetrics latencyMetrics;
+
+    private CachingAuthenticationProvider provider;
+
+    @Before
+    public void init() throws Exception {
+        DaoAuthenticationProvider databaseProvider = new DaoAuthenticationProvider();
+        databaseProvider.setUserDetailsService(userDetailsService);
+        databaseProvider.setPasswordEncoder(new BCryptPasswordEncoder());
+        databaseProvider.afterPropertiesSet();
+
+        provider = new CachingAuthenticationProvider(databaseProvider, authenticationCache, latencyMetrics);
+        authenticationCache.getCache().clear();
+    }
+
+    @Test
+    public void testRepeatedAuthenticationIsCached() {
+        long hits = authenticationCache.getCache().getHitCount();
+        LatencyHistogram cachedLatency = latencyMetrics.histogram(LatencyMetrics.AUTHENTICATIONS, "cache");
+        long cachedCount = cachedLatency.getCount();
+
+        Authentication first = provider.authenticate(token(UserServiceTest.USERNAME, PASSWORD));
+        Authentication second = provider.authenticate(token(UserServiceTest.USERNAME, PASSWORD));
+
+        assertTrue("not authenticated", first.isAuthenticated() && second.isAuthenticated());
+        assertEquals("unexpected user", UserServiceTest.USERNAME, second.getName());
+        assertEquals("second authentication not cached", hits + 1, authenticationCache.getCache().getHitCount());
+        assertEquals("cached authentication latency not recorded", cachedCount + 1, cachedLatency.getCount());
+    }
+
+    @Test
+    public void testWrongPasswordIsNotCached() {
+        provider.authenticate(token(UserServiceTest.USERNAME, PASSWORD));
+
+        try {
+            provider.authenticate(token(UserServiceTest.USERNAME, "Wrong1"));
+            fail("wrong password accepted");
+        } catch (BadCredentialsException e) {
+            assertEquals("failed authentication cached", 1, authenticationCache.getCache().size());
+        }
+    }
+
+    @Test
+    public void testUserChangeEvictsAuthentications() {
+        provider.authenticate(token(UserServiceTest.USERNAME, PASSWORD));
+
+        userService.updateUserMaxMinutesPerDay(UserServiceTest.USERNAME, 500L);
+        assertNull("authentication not evicted", authenticationCache.find(UserServiceTest.USERNAME, PASSWORD));
+    }
+
+    private UsernamePasswordAuthenticationToken token(String username, String password) {
+        return new UsernamePasswordAuthenticationToken(username, password);
+    }
+}
@@ -0,0 +1,61 @@
+package minutes.tracker.app;
+
+
+import minutes.tracker.app.dao.ConnectionPoolMetrics;
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
+import minutes.tracker.app.services.UserService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes={TestConfiguration.class, RootContextConfig.class})
+public class ConnectionPoolMetricsTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void testDataSourceIsPooledAndRouted() {
+        assertTrue("the datasource is not lazy", dataSource instanceof LazyConnectionDataSourceProxy);
+        DataSource monitoring = ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        assertTrue("the statements are not monitored", monitoring instanceof QueryMonitoringDataSource);
+        DataSource target = ((QueryMonitoringDataSource) monitoring).getTargetDataSource();
+        assertTrue("the datasource is not routed", target instanceof ReplicaRoutingDataSource);
+        assertEquals("the test replica is missing", 1, ((ReplicaRoutingDataSource) target).getReplicaCount());
+        assertNotNull("primary pool metrics not registered", connectionPoolMetrics.getPools().get("minutes-tracker"));
+    }
+
+    @Test
+    public void testReadOnlyAcquisitionsAreMeasuredOnReplica() {
+        ConnectionPoolMetrics.PoolMetrics pool = connectionPoolMetrics.getPools().get("minutes-tracker-replica-0");
+        assertNotNull("replica pool metrics not registered", pool);
+
+        long acquisitions = pool.getAcquisitionCount();
+        userService.findTodaysMinutesForUser(UserServiceTest.USERNAME);
+
+        assertTrue("read-only transaction did not use the replica", pool.getAcquisitionCount() > acquisitions);
+        assertTrue("no connection open", pool.getTotalConnections() > 0);
+        assertEquals("connection not returned to the pool", 0, pool.getActiveConnections());
+        assertEquals("unexpected acquisition timeout", 0, pool.getTimeoutCount());
+    }
+}
@@ -0,0 +1,210 @@
+package minutes.tracker.app;
+
+import minutes.tracker.app.dao.UserRepository;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.model.DailyMinutes;
+import minutes.tracker.app.model.TotalsPeriod;
+import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.Work;
+import minutes.tracker.app.services.DailyMinutesService;
+import minutes.tracker.app.services.UserDataVersions;
+import minutes.tracker.app.services.UserService;
+import minutes.tracker.app.services.WorkService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static minutes.tracker.app.TestUtils.date;
+import static minutes.tracker.app.TestUtils.time;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes={TestConfiguration.class, RootContextConfig.class})
+public class DailyMinutesServiceTest {
+
+    @Autowired
+    private DailyMinutesService dailyMinutesService;
+
+    @Autowired
+    private WorkService workService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void todaysMinutesFollowSavesAndDeletes() {
+        long before = todaysMinutes();
+
+        Work work = workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(null, new Date(), time("08:00"), "today", 15L))).get(0);
+        assertEquals("new work not added", before + 15, todaysMinutes());
+
+        workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(work.getId(), new Date(), time("08:00"), "today", 20L)));
+        assertEquals("updated work not added", before + 20, todaysMinutes());
+
+        workService.deleteWorks(UserServiceTest.USERNAME, Arrays.asList(work.getId()));
+        assertEquals("deleted work not removed", before, todaysMinutes());
+    }
+
+    @Test
+    public void concurrentAdditionsToTheSameDayAreNotLost() throws Exception {
+        User user = userRepository.findUserByUsername(UserServiceTest.USERNAME);
+        Date day = date(2015, 6, 1);
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> additions = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                additions.add(executor.submit(() -> {
+                    Map<Date, Long> minutesByDay = DailyMinutesService.newMinutesByDay();
+                    DailyMinutesService.collect(minutesByDay, day, 10L);
+                    dailyMinutesService.addMinutes(user, minutesByDay);
+                }));
+            }
+            for (Future<?> addition : additions) {
+                addition.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Long minutes = em.createQuery("select d.minutes from DailyMinutes d where d.day = :day", Long.class)
+                .setParameter("day", DailyMinutes.dayOf(day))
+                .getSingleResult();
+        assertEquals("concurrent additions lost", Long.valueOf(10L * threads), minutes);
+    }
+
+    @Test
+    public void concurrentDeletesOfTheSameWorkSubtractOnce() throws Exception {
+        Date day = date(2015, 6, 2);
+        List<Work> works = workService.saveWorks(UserServiceTest.USERNAME, Arrays.asList(
+                new WorkDTO(null, day, time("08:00"), "deleted twice", 30L),
+                new WorkDTO(null, day, time("09:00"), "kept", 20L)));
+        Long deletedId = works.get(0).getId();
+        int threads = 4;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int deletions = 0;
+        try {
+            List<Future<List<Long>>> deletes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                deletes.add(executor.submit(() -> workService.deleteWorks(UserServiceTest.USERNAME, Arrays.asList(deletedId))));
+            }
+            for (Future<List<Long>> delete : deletes) {
+                deletions += delete.get().size();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Long minutes = em.createQuery("select d.minutes from DailyMinutes d where d.day = :day", Long.class)
+                .setParameter("day", DailyMinutes.dayOf(day))
+                .getSingleResult();
+        assertEquals("work reported as deleted more than once", 1, deletions);
+        assertEquals("minutes of the deleted work not subtracted once", Long.valueOf(20L), minutes);
+    }
+
+    @Test
+    public void reconcileFixesDrift() {
+        Map<Date, Long> drift = DailyMinutesService.newMinutesByDay();
+        DailyMinutesService.collect(drift, date(2015, 1, 7), 100L);
+        dailyMinutesService.addMinutes(userRepository.findUserByUsername(UserServiceTest.USERNAME), drift);
+
+        int fixed = dailyMinutesService.reconcile(date(2015, 1, 7), date(2015, 1, 7));
+        assertEquals("drifted day not fixed", 1, fixed);
+
+        Long worksMinutes = em.createQuery("select sum(w.minutes) from Work w where w.date = :day", Long.class)
+                .setParameter("day", date(2015, 1, 7))
+                .getSingleResult();
+        Long rollupMinutes = em.createQuery("select d.minutes from DailyMinutes d where d.day = :day", Long.class)
+                .setParameter("day", DailyMinutes.dayOf(date(2015, 1, 7)))
+                .getSingleResult();
+
+        assertEquals("rollup differs from works", worksMinutes, rollupMinutes);
+    }
+
+    @Test
+    public void reconcileOutdatesVersionsReadBeforeCommit() {
+        Map<Date, Long> drift = DailyMinutesService.newMinutesByDay();
+        DailyMinutesService.collect(drift, date(2015, 1, 8), 50L);
+        dailyMinutesService.addMinutes(userRepository.findUserByUsername(UserServiceTest.USERNAME), drift);
+
+        // a read during the reconciliation sees its first bump, but not the fixed totals
+        String versionBeforeCommit = new TransactionTemplate(transactionManager).execute((status) -> {
+            assertEquals("drifted day not fixed", 1, dailyMinutesService.reconcile(date(2015, 1, 8), date(2015, 1, 8)));
+            return userDataVersions.currentVersion(UserServiceTest.USERNAME);
+        });
+
+        assertNotEquals("version read before the commit still current", versionBeforeCommit,
+                userDataVersions.currentVersion(UserServiceTest.USERNAME));
+    }
+
+    @Test
+    public void minutesByPeriodMatchWorks() {
+        Map<Date, Long> months = dailyMinutesService.findMinutesByPeriod(UserServiceTest.USERNAME,
+                date(2015, 1, 1), date(2015, 1, 31), TotalsPeriod.MONTH);
+        assertEquals("one month expected", 1, months.size());
+
+        Long worksMinutes = em.createQuery("select sum(w.minutes) from Work w where w.user.username = :username " +
+                "and w.date between :fromDate and :toDate", Long.class)
+                .setParameter("username", UserServiceTest.USERNAME)
+                .setParameter("fromDate", date(2015, 1, 1))
+                .setParameter("toDate", date(2015, 1, 31))
+                .getSingleResult();
+        assertEquals("month total differs from works", worksMinutes, months.get(date(2015, 1, 1)));
+
+        Map<Date, Long> weeks = dailyMinutesService.findMinutesByPeriod(UserServiceTest.USERNAME,
+                date(2015, 1, 1), date(2015, 1, 31), TotalsPeriod.WEEK);
+        assertEquals("weeks expected from monday 2014/12/29", date(2014, 12, 29), weeks.keySet().iterator().next());
+        assertEquals("wrong number of weeks", 5, weeks.size());
+        assertEquals("week totals differ from month total", worksMinutes,
+                weeks.values().stream().reduce(0L, Long::sum));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minutesByPeriodRejectsReversedRange() {
+        dailyMinutesService.findMinutesByPeriod(UserServiceTest.USERNAME,
+                date(2015, 2, 1), date(2015, 1, 1), TotalsPeriod.DAY);
+    }
+
+    private long todaysMinutes() {
+        Long minutes = userService.findTodaysMinutesForUser(UserServiceTest.USERNAME);
+        return minutes != null ? minutes : 0;
+    }
+
+}
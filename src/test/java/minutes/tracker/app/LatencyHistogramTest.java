@@ -0,0 +1,67 @@
+package minutes.tracker.app;
+
+import minutes.tracker.app.services.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertEquals("count not as expected", 10000, histogram.getCount());
+        assertEquals("max not as expected", 10000, histogram.getMaxMicros());
+        assertWithin("p50", 5000, histogram.getPercentileMicros(0.5));
+        assertWithin("p95", 9500, histogram.getPercentileMicros(0.95));
+        assertWithin("p99", 9900, histogram.getPercentileMicros(0.99));
+        assertEquals("p100 not the max", 10000, histogram.getPercentileMicros(1.0));
+    }
+
+    @Test
+    public void testEmptyAndHugeLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("empty histogram percentile", 0, histogram.getPercentileMicros(0.99));
+
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals("huge latency not kept as max", Long.MAX_VALUE / 2, histogram.getPercentileMicros(0.5));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i % 100);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals("recordings lost", 40000, histogram.getCount());
+        assertEquals("max not as expected", 99, histogram.getMaxMicros());
+    }
+
+    private static void assertWithin(String percentile, long expected, long actual) {
+        assertTrue(percentile + " not within 12.5%: " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+
+}
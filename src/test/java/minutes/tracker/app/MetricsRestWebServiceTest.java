@@ -0,0 +1,73 @@
+package minutes.tracker.app;
+
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+import minutes.tracker.config.servlet.ServletContextConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import sun.security.acl.PrincipalImpl;
+
+import static minutes.tracker.app.TestUtils.performAsync;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ActiveProfiles("test")
+@ContextConfiguration(classes={TestConfiguration.class, RootContextConfig.class, ServletContextConfig.class})
+public class MetricsRestWebServiceTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext wac;
+
+    @Before
+    public void init()  {
+        mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+    }
+
+    @Test
+    public void testMetricsAfterSearch() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/metrics")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain; version=0.0.4; charset=utf-8"))
+                .andExpect(content().string(containsString("# TYPE http_request_duration_seconds summary\n")))
+                .andExpect(content().string(containsString(
+                        "http_request_duration_seconds_count{handler=\"WorkController.searchWorksByDate\"}")))
+                .andExpect(content().string(containsString(
+                        "http_request_duration_seconds{handler=\"WorkController.searchWorksByDate\",quantile=\"0.99\"}")))
+                .andExpect(content().string(containsString(
+                        "http_request_database_duration_seconds_count{handler=\"WorkController.searchWorksByDate\"}")))
+                .andExpect(content().string(containsString(
+                        "repository_call_duration_seconds_count{method=\"WorkRepository.findWorksByDateTime\"}")))
+                .andExpect(content().string(containsString("# TYPE db_statements_total counter\ndb_statements_total ")))
+                .andExpect(content().string(containsString("db_pool_connections{pool=\"minutes-tracker\",state=\"active\"}")))
+                .andExpect(content().string(containsString("executor_completed_total{pool=\"")))
+                .andExpect(content().string(containsString("cache_hits_total{cache=\"search_page\"}")));
+    }
+
+}
@@ -0,0 +1,94 @@
+package minutes.tracker.app;
+
+
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.QueryStats;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.StringWriter;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ *
+ * Slow query log and per-request accounting, on an in-memory database with a table of three rows.
+ *
+ */
+public class QueryMonitoringDataSourceTest {
+
+    private static final String SELECT = "select name from PERSON where name like ?";
+
+    private DriverManagerDataSource database;
+    private StringWriter log;
+    private WriterAppender appender;
+
+    @Before
+    public void init() {
+        database = new DriverManagerDataSource("jdbc:hsqldb:mem:monitoring-" + UUID.randomUUID(), "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(database);
+        setup.execute("create table PERSON (name varchar(20))");
+        setup.update("insert into PERSON values ('ann'), ('anna'), ('bob')");
+
+        log = new StringWriter();
+        appender = new WriterAppender(new PatternLayout("%p %m%n"), log);
+        Logger.getLogger(QueryMonitoringDataSource.class).addAppender(appender);
+    }
+
+    @After
+    public void cleanup() {
+        Logger.getLogger(QueryMonitoringDataSource.class).removeAppender(appender);
+        QueryStats.detach();
+    }
+
+    @Test
+    public void testSlowQueriesAreLoggedWithBindValues() {
+        QueryMonitoringDataSource dataSource = new QueryMonitoringDataSource(database, 0, false);
+        new JdbcTemplate(dataSource).queryForList(SELECT, String.class, "ann%");
+
+        assertThat("slow query not logged", log.toString(),
+                containsString("WARN Slow query ("));
+        assertThat("slow query logged without its statement and bind values", log.toString(),
+                containsString(SELECT + " | binds: [1='ann%']"));
+        assertEquals(1, dataSource.getSlowQueryCount());
+    }
+
+    @Test
+    public void testFastQueriesAreNotLogged() {
+        QueryMonitoringDataSource dataSource = new QueryMonitoringDataSource(database, 60 * 1000, false);
+        new JdbcTemplate(dataSource).queryForList(SELECT, String.class, "ann%");
+
+        assertThat("fast query logged", log.toString(), not(containsString("Slow query")));
+        assertEquals(0, dataSource.getSlowQueryCount());
+    }
+
+    @Test
+    public void testStatementsAndRowsAreAccounted() {
+        QueryMonitoringDataSource dataSource = new QueryMonitoringDataSource(database, 60 * 1000, false);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        QueryStats stats = new QueryStats();
+
+        QueryStats.attach(stats);
+        jdbcTemplate.queryForList(SELECT, String.class, "ann%");
+        jdbcTemplate.update("update PERSON set name = ? where name = ?", "bobby", "bob");
+        QueryStats.detach();
+        jdbcTemplate.queryForList(SELECT, String.class, "%");
+
+        assertEquals("statements of the request", 2, stats.getStatements());
+        assertEquals("rows of the request", 2, stats.getRows());
+        assertEquals("statements of the datasource", 3, dataSource.getStatementCount());
+        assertEquals("rows of the datasource", 5, dataSource.getRowCount());
+    }
+
+}
@@ -0,0 +1,116 @@
+package minutes.tracker.app;
+
+
+import minutes.tracker.app.dao.ReplicaRoutingDataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * Routing tests on two separate in-memory databases, each one with a table that tells which database it is.
+ *
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static final long STICKY_WINDOW_MILLIS = 200;
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @Before
+    public void init() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica), STICKY_WINDOW_MILLIS);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        assertEquals("read-only transaction not routed to the replica", "replica", readOnly());
+        assertEquals("read-write transaction not routed to the primary", "primary", readWrite());
+    }
+
+    @Test
+    public void testReadsStickToPrimaryAfterOwnWrite() throws Exception {
+        authenticate("test123");
+        readWrite();
+        assertEquals("read after own write not routed to the primary", "primary", readOnly());
+
+        authenticate("other123");
+        assertEquals("other users must read from the replica", "replica", readOnly());
+
+        authenticate("test123");
+        Thread.sleep(STICKY_WINDOW_MILLIS * 2);
+        assertEquals("read after the sticky window not routed to the replica", "replica", readOnly());
+    }
+
+    @Test
+    public void testReplicaTransactionsAreMarked() {
+        assertTrue("replica transaction not marked", readOnlyTransaction.execute((status) -> {
+            whichDatabase();
+            return routingDataSource.isCurrentTransactionOnReplica();
+        }));
+        assertFalse("primary transaction marked", readWriteTransaction.execute((status) -> {
+            whichDatabase();
+            return routingDataSource.isCurrentTransactionOnReplica();
+        }));
+        assertFalse("mark left after the transaction", routingDataSource.isCurrentTransactionOnReplica());
+    }
+
+    private String readOnly() {
+        return readOnlyTransaction.execute((status) -> whichDatabase());
+    }
+
+    private String readWrite() {
+        return readWriteTransaction.execute((status) -> whichDatabase());
+    }
+
+    private String whichDatabase() {
+        return jdbcTemplate.queryForObject("select name from DATABASE_NAME", String.class);
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null));
+    }
+
+    private DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:hsqldb:mem:" + name + "-" + UUID.randomUUID(), "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("create table DATABASE_NAME (name varchar(20))");
+        setup.update("insert into DATABASE_NAME values (?)", name);
+        return dataSource;
+    }
+}
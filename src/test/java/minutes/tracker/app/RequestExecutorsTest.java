@@ -0,0 +1,64 @@
+package minutes.tracker.app;
+
+
+import minutes.tracker.app.services.RequestExecutors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RequestExecutorsTest {
+
+    private final RequestExecutors.Pool pool = new RequestExecutors.Pool("test", 1, 1);
+
+    @After
+    public void cleanup() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFullPoolRejectsTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> running = pool.submit(() -> {
+            started.countDown();
+            await(release);
+            return "running";
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<String> queued = pool.submit(() -> "queued");
+        CompletableFuture<String> rejected = pool.submit(() -> "rejected");
+
+        assertEquals("queued task not counted", 1, pool.getQueueDepth());
+        assertEquals("busy thread not counted", 1, pool.getActiveThreads());
+        assertEquals("rejection not counted", 1, pool.getRejectedCount());
+
+        try {
+            rejected.get();
+            fail("task accepted by a full pool");
+        } catch (ExecutionException e) {
+            assertTrue("unexpected error " + e.getCause(), e.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
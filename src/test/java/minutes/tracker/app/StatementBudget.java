@@ -0,0 +1,37 @@
+package minutes.tracker.app;
+
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * Budget of JDBC statements for the code run between start and assertAtMost, so that N+1 queries fail the build.
+ * The tests run one at a time, so the statements counted are the ones of the code under test.
+ *
+ */
+public class StatementBudget {
+
+    private final QueryMonitoringDataSource dataSource;
+    private final long startCount;
+
+    private StatementBudget(QueryMonitoringDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.startCount = dataSource.getStatementCount();
+    }
+
+    public static StatementBudget start(QueryMonitoringDataSource dataSource) {
+        return new StatementBudget(dataSource);
+    }
+
+    public long statements() {
+        return dataSource.getStatementCount() - startCount;
+    }
+
+    public void assertAtMost(long maxStatements, String operation) {
+        long statements = statements();
+        assertTrue(operation + " issued " + statements + " statements, the budget is " + maxStatements,
+                statements <= maxStatements);
+    }
+
+}
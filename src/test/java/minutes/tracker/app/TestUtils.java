@@ -2,12 +2,19 @@ package minutes.tracker.app;
 
 
 import org.apache.commons.lang3.NotImplementedException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.sql.Time;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
 /**
  *
  * Utility methods used for test purposes
@@ -15,6 +22,8 @@ import java.util.Date;
  */
 public class TestUtils {
 
+    private static final long ASYNC_TIMEOUT_MILLIS = 10 * 1000;
+
     private TestUtils() {
         throw new NotImplementedException("Utility classes cannot be instantiated");
     }
@@ -35,4 +44,25 @@ public class TestUtils {
         return time;
     }
 
+    /**
+     * performs a request on an asynchronous endpoint, and dispatches its result once it is available
+     */
+    public static ResultActions performAsync(MockMvc mockMvc, RequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(performAndWait(mockMvc, requestBuilder)));
+    }
+
+    /**
+     * performs a request on an asynchronous endpoint and waits for its result - the headers set while the result is
+     * computed are on the response of the returned result, the dispatch of MockMvc gets a new response
+     */
+    public static MvcResult performAndWait(MockMvc mockMvc, RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        result.getAsyncResult(ASYNC_TIMEOUT_MILLIS);
+
+        return result;
+    }
+
 }
@@ -0,0 +1,85 @@
+package minutes.tracker.app;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.TimeCodec;
+import minutes.tracker.app.dto.serialization.WorkExportWriter;
+import minutes.tracker.app.dto.serialization.WorkFileFormat;
+import minutes.tracker.app.dto.serialization.WorkImportParser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TimeCodecTest {
+
+    @Test
+    public void testSameValuesAsSimpleDateFormat() throws Exception {
+        SimpleDateFormat parser = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+        SimpleDateFormat formatter = new SimpleDateFormat("HH:mm");
+        for (int minuteOfDay = 0; minuteOfDay < TimeCodec.MINUTES_PER_DAY; minuteOfDay++) {
+            String text = String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+            Time expected = new Time(parser.parse("1970/01/01 " + text).getTime());
+
+            Time parsed = TimeCodec.parse(text);
+            assertEquals("parsed time not as before for " + text, expected.getTime(), parsed.getTime());
+            assertEquals("formatted time not as before for " + text, formatter.format(expected), TimeCodec.format(parsed));
+            assertEquals("minute of day not as expected", minuteOfDay, TimeCodec.toMinuteOfDay(parsed));
+        }
+    }
+
+    @Test
+    public void testSingleDigitHour() {
+        assertEquals("single digit hour not parsed", "09:05", TimeCodec.format(TimeCodec.parse("9:05")));
+    }
+
+    @Test
+    public void testInvalidTimesRejected() {
+        for (String text : new String[] {"", "1200", "24:00", "12:60", "12:5", "1:2:3", "ab:cd", "12:00x", "-1:00"}) {
+            try {
+                TimeCodec.parse(text);
+                fail("invalid time accepted: " + text);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        WorkDTO work = mapper.readValue("{\"time\":\"13:45\",\"minutes\":10}", WorkDTO.class);
+
+        assertEquals("time not deserialized", 13 * 60 + 45, TimeCodec.toMinuteOfDay(work.getTime()));
+        assertEquals("time not serialized", "\"13:45\"", mapper.readTree(mapper.writeValueAsString(work)).get("time").toString());
+    }
+
+    @Test
+    public void testExportImportRoundTrip() throws Exception {
+        for (WorkFileFormat format : WorkFileFormat.values()) {
+            for (String time : new String[] {"00:00", "08:30", "19:00", "23:59"}) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                WorkExportWriter writer = new WorkExportWriter(format, output);
+                writer.write(new WorkDTO(1L, TestUtils.date(2015, 1, 8), TimeCodec.parse(time), "round trip", 10L));
+                writer.flush();
+
+                String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n");
+                WorkDTO imported = new WorkImportParser(format).parse(lines[lines.length - 1]);
+
+                assertEquals("time moved by the " + format + " export and import", time, TimeCodec.format(imported.getTime()));
+            }
+        }
+    }
+
+    @Test(expected = JsonProcessingException.class)
+    public void testJsonInvalidTimeRejected() throws Exception {
+        new ObjectMapper().readValue("{\"time\":\"25:00\"}", WorkDTO.class);
+    }
+
+}
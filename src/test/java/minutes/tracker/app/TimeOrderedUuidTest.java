@@ -0,0 +1,49 @@
+package minutes.tracker.app;
+
+import minutes.tracker.app.model.TimeOrderedUuid;
+import minutes.tracker.app.model.User;
+import minutes.tracker.app.model.Work;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeOrderedUuidTest {
+
+    @Test
+    public void testVersionAndVariant() {
+        UUID uuid = TimeOrderedUuid.generate();
+        assertEquals("not a version 7 uuid", 7, uuid.version());
+        assertEquals("not an RFC variant uuid", 2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue("timestamp not the current time", Math.abs(System.currentTimeMillis() - millis) < 60 * 1000);
+    }
+
+    @Test
+    public void testGeneratedUuidsIncrease() {
+        UUID previous = TimeOrderedUuid.generate();
+        // more than the 4096 uuids a millisecond can hold
+        for (int i = 0; i < 10000; i++) {
+            UUID next = TimeOrderedUuid.generate();
+            assertTrue("uuid " + next + " not greater than " + previous,
+                    Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testEntityIdentity() {
+        User user = new User("test123", "digest", "test@test.com", 100L);
+        User copy = user.detachedCopy();
+        assertEquals("copy not equal to the original", user, copy);
+        assertEquals("copy hash not the same", user.hashCode(), copy.hashCode());
+        assertEquals("uuid changed", user.getUuid(), copy.getUuid());
+        assertEquals("hash not the uuid hash", user.getUuid().hashCode(), user.hashCode());
+
+        assertFalse("different works are equal", new Work().equals(new Work()));
+    }
+
+}
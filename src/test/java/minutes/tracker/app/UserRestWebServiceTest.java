@@ -1,17 +1,21 @@
 package minutes.tracker.app;
 
 
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
 import minutes.tracker.app.dao.UserRepository;
 import minutes.tracker.app.model.User;
 import minutes.tracker.config.root.RootContextConfig;
 import minutes.tracker.config.root.TestConfiguration;
 import minutes.tracker.config.servlet.ServletContextConfig;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -21,6 +25,10 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import sun.security.acl.PrincipalImpl;
 
+import static minutes.tracker.app.TestUtils.performAndWait;
+import static minutes.tracker.app.TestUtils.performAsync;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -37,6 +45,9 @@ public class UserRestWebServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private QueryMonitoringDataSource queryMonitoringDataSource;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -45,9 +56,81 @@ public class UserRestWebServiceTest {
         mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
     }
 
+    @After
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testGetUserInfo() throws Exception {
+        performAsync(mockMvc, get("/user")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['userName']").value(UserServiceTest.USERNAME));
+    }
+
+    @Test
+    public void testUserStatementBudget() throws Exception {
+        StatementBudget getBudget = StatementBudget.start(queryMonitoringDataSource);
+        performAsync(mockMvc, get("/user")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+        getBudget.assertAtMost(2, "GET /user");
+
+        StatementBudget putBudget = StatementBudget.start(queryMonitoringDataSource);
+        performAsync(mockMvc, put("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("250")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+        putBudget.assertAtMost(3, "PUT /user");
+    }
+
+    @Test
+    public void testUserInfoNotModifiedUntilUpdate() throws Exception {
+        // no authenticated user, the user info is read on the test replica, which can be behind: no ETag
+        String replicaETag = performAndWait(mockMvc, get("/user")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .getResponse().getHeader("ETag");
+        assertNull("ETag of a user info read on a replica", replicaETag);
+
+        // after a write, the reads of the user go to the primary and are tagged
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(UserServiceTest.USERNAME, null));
+        performAsync(mockMvc, put("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("250")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        String etag = performAndWait(mockMvc, get("/user")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .getResponse().getHeader("ETag");
+        assertNotNull("ETag missing", etag);
+
+        mockMvc.perform(get("/user")
+                .header("If-None-Match", etag)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isNotModified());
+
+        performAsync(mockMvc, put("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("300")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/user")
+                .header("If-None-Match", etag)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(request().asyncStarted());
+    }
+
     @Test
     public void testUpdateMaxMinutes() throws Exception {
-        mockMvc.perform(put("/user")
+        performAsync(mockMvc, put("/user")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("200")
                 .accept(MediaType.APPLICATION_JSON)
@@ -1,6 +1,7 @@
 package minutes.tracker.app;
 
 
+import minutes.tracker.app.dao.UserRepository;
 import minutes.tracker.app.model.User;
 import minutes.tracker.app.services.UserService;
 import minutes.tracker.config.root.RootContextConfig;
@@ -30,6 +31,9 @@ public class UserServiceTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @PersistenceContext
     private EntityManager em;
 
@@ -43,6 +47,23 @@ public class UserServiceTest {
                 user.getMaxMinutesPerDay() == 300L);
     }
 
+    @Test
+    public void testUserLookupsAreCached() {
+        userService.findUserByUsername(USERNAME);
+        long hits = userRepository.getUserCache().getHitCount();
+
+        User user = userService.findUserByUsername(USERNAME);
+        assertEquals("second lookup not served from the cache", hits + 1, userRepository.getUserCache().getHitCount());
+        assertEquals("Unexpected user " + user.getUsername(), USERNAME, user.getUsername());
+
+        userService.updateUserMaxMinutesPerDay(USERNAME, 1234L);
+        long misses = userRepository.getUserCache().getMissCount();
+
+        user = userService.findUserByUsername(USERNAME);
+        assertEquals("update did not invalidate the cache", misses + 1, userRepository.getUserCache().getMissCount());
+        assertEquals("stale user returned", Long.valueOf(1234L), user.getMaxMinutesPerDay());
+    }
+
     @Test
     public void testFindUserByUsername() {
         User user = findUserByUsername(USERNAME);
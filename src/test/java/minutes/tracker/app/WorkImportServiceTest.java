@@ -0,0 +1,107 @@
+package minutes.tracker.app;
+
+import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.dto.serialization.WorkFileFormat;
+import minutes.tracker.app.model.WorkImport;
+import minutes.tracker.app.services.WorkImportService;
+import minutes.tracker.app.services.WorkService;
+import minutes.tracker.config.root.RootContextConfig;
+import minutes.tracker.config.root.TestConfiguration;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static minutes.tracker.app.TestUtils.date;
+import static minutes.tracker.app.TestUtils.time;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes={TestConfiguration.class, RootContextConfig.class})
+public class WorkImportServiceTest {
+
+    @Autowired
+    private WorkImportService workImportService;
+
+    @Autowired
+    private WorkService workService;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    public void importCsv() throws Exception {
+        String csv = "date,time,minutes,description\n" +
+                "2015/03/01,09:00,60,csv import\n" +
+                "\n" +
+                "2015/03/01,10:00,30,\"csv import, quoted \"\"description\"\"\"\n";
+
+        WorkImport workImport = workImportService.importWorks(UserServiceTest.USERNAME, "csv-import",
+                WorkFileFormat.CSV, stream(csv));
+
+        assertTrue("import not completed", workImport.isCompleted());
+        assertEquals("lines imported not as expected", 2L, (long) workImport.getLinesImported());
+        assertEquals("works not imported", 1L, countWorks("csv import, quoted \"description\""));
+    }
+
+    @Test
+    public void importNdjson() throws Exception {
+        String ndjson = "{\"date\": \"2015/03/02\", \"time\": \"09:00\", \"minutes\": 60, \"description\": \"ndjson import\"}\n" +
+                "{\"date\": \"2015/03/02\", \"time\": \"10:00\", \"minutes\": 30, \"description\": \"ndjson import\"}\n";
+
+        WorkImport workImport = workImportService.importWorks(UserServiceTest.USERNAME, "ndjson-import",
+                WorkFileFormat.NDJSON, stream(ndjson));
+
+        assertEquals("lines imported not as expected", 2L, (long) workImport.getLinesImported());
+        assertEquals("works not imported", 2L, countWorks("ndjson import"));
+    }
+
+    @Test
+    public void resumeImport() throws Exception {
+        // simulates an import that was interrupted after the first batch
+        workService.startImport(UserServiceTest.USERNAME, "resumed-import");
+        workService.saveImportBatch(UserServiceTest.USERNAME, "resumed-import",
+                Arrays.asList(new WorkDTO(null, date(2015, 3, 3), time("09:00"), "resumed import", 60L)));
+
+        String csv = "2015/03/03,09:00,60,resumed import\n" +
+                "2015/03/03,10:00,60,resumed import\n";
+
+        WorkImport workImport = workImportService.importWorks(UserServiceTest.USERNAME, "resumed-import",
+                WorkFileFormat.CSV, stream(csv));
+
+        assertEquals("lines imported not as expected", 2L, (long) workImport.getLinesImported());
+        assertEquals("lines imported twice", 2L, countWorks("resumed import"));
+
+        workImportService.importWorks(UserServiceTest.USERNAME, "resumed-import", WorkFileFormat.CSV, stream(csv));
+        assertEquals("completed import was imported again", 2L, countWorks("resumed import"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void importInvalidLine() throws Exception {
+        workImportService.importWorks(UserServiceTest.USERNAME, "invalid-import", WorkFileFormat.CSV,
+                stream("2015/03/04,09:00,not a number,invalid import\n"));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long countWorks(String description) {
+        return em.createQuery("select count(w) from Work w where w.description.text = :description", Long.class)
+                .setParameter("description", description)
+                .getSingleResult();
+    }
+
+}
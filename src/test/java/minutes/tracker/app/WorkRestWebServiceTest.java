@@ -1,26 +1,49 @@
 package minutes.tracker.app;
 
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
 import minutes.tracker.app.dao.WorkRepository;
 import minutes.tracker.app.model.Work;
+import minutes.tracker.app.model.WorkCursor;
 import minutes.tracker.config.root.RootContextConfig;
 import minutes.tracker.config.root.TestConfiguration;
 import minutes.tracker.config.servlet.ServletContextConfig;
 
+import com.jayway.jsonpath.JsonPath;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import sun.security.acl.PrincipalImpl;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static minutes.tracker.app.TestUtils.date;
+import static minutes.tracker.app.TestUtils.performAndWait;
+import static minutes.tracker.app.TestUtils.performAsync;
+import static minutes.tracker.app.TestUtils.time;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -36,6 +59,9 @@ public class WorkRestWebServiceTest {
     @Autowired
     private WorkRepository workRepository;
 
+    @Autowired
+    private QueryMonitoringDataSource queryMonitoringDataSource;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -44,9 +70,14 @@ public class WorkRestWebServiceTest {
         mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
     }
 
+    @After
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     public void testSearchWorksByDate() throws Exception {
-        mockMvc.perform(get("/work")
+        performAsync(mockMvc, get("/work")
                 .param("fromDate", "2015/01/01")
                 .param("toDate", "2015/01/02")
                 .param("pageNumber", "1")
@@ -58,9 +89,105 @@ public class WorkRestWebServiceTest {
                 .andExpect(jsonPath("$.['works'].[0].['description']").value("2 -  Chickpea with roasted cauliflower"));
     }
 
+    @Test
+    public void testSearchWorksByDescription() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/08")
+                .param("description", "salmon")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['totalPages']").value(1))
+                .andExpect(jsonPath("$.['works'].[0].['description']").value("6 -  Apricot-Chile Glazed Salmon"))
+                .andExpect(jsonPath("$.['works'].[1].['description']").value("3 - Salmon Cakes with Olives, Lemon & Dill"));
+    }
+
+    @Test
+    public void testSearchWorksByUnknownDescriptionMatch() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/08")
+                .param("description", "salmon")
+                .param("descriptionMatch", "regex")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testSearchWorksWithoutCount() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/08")
+                .param("pageNumber", "1")
+                .param("count", "none")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['totalPagesExact']").value(false))
+                .andExpect(jsonPath("$.['nextCursor']").exists());
+    }
+
+    @Test
+    public void testWeeklyTotals() throws Exception {
+        mockMvc.perform(get("/work/totals")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/31")
+                .param("period", "week")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['period']").value("week"))
+                .andExpect(jsonPath("$.['starts'].[0]").value("2014/12/29"))
+                .andExpect(jsonPath("$.['starts'].[4]").value("2015/01/26"))
+                .andExpect(jsonPath("$.['minutes'].[4]").exists());
+    }
+
+    @Test
+    public void testTotalsWithUnknownPeriod() throws Exception {
+        mockMvc.perform(get("/work/totals")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/31")
+                .param("period", "year")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testSearchWorksByCursor() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("cursor", new WorkCursor(WorkCursor.Direction.AFTER, date(2015, 1, 3), time("00:00"), 0L).encode())
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['works'].[0].['description']").value("2 -  Chickpea with roasted cauliflower"))
+                .andExpect(jsonPath("$.['previousCursor']").exists());
+    }
+
+    @Test
+    public void testSearchWorksWithoutPage() throws Exception {
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl("test123")))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testSaveWorks() throws Exception {
-        mockMvc.perform(post("/work")
+        performAsync(mockMvc, post("/work")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("[{\"id\":\"1\", \"date\": \"2015/01/01\",\"time\": \"11:00\", \"minutes\":\"100\", \"description\": \"test\" }]")
                 .accept(MediaType.APPLICATION_JSON)
@@ -71,6 +198,181 @@ public class WorkRestWebServiceTest {
                 .andExpect(jsonPath("$.[0].['description']").value("test"));
     }
 
+    @Test
+    public void testSearchWorksStatementBudget() throws Exception {
+        StatementBudget budget = StatementBudget.start(queryMonitoringDataSource);
+
+        performAsync(mockMvc, get("/work")
+                .param("fromDate", "2015/01/03")
+                .param("toDate", "2015/01/07")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        budget.assertAtMost(2, "GET /work");
+    }
+
+    @Test
+    public void testSaveWorksStatementBudget() throws Exception {
+        // a first POST caches the user and the description dictionary, and creates the daily minutes of the days
+        StringBuilder firstWorks = new StringBuilder("[");
+        for (int i = 0; i < 5; i++) {
+            firstWorks.append(i == 0 ? "" : ",")
+                    .append("{\"date\": \"2015/06/0").append(1 + i)
+                    .append("\",\"time\": \"09:00\", \"minutes\":\"10\", \"description\": \"budget\" }");
+        }
+        firstWorks.append("]");
+
+        performAsync(mockMvc, post("/work")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(firstWorks.toString())
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        StringBuilder works = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            works.append(i == 0 ? "" : ",")
+                    .append("{\"date\": \"2015/06/0").append(1 + i % 5)
+                    .append("\",\"time\": \"10:00\", \"minutes\":\"10\", \"description\": \"budget ").append(i).append("\" }");
+        }
+        works.append("]");
+
+        StatementBudget budget = StatementBudget.start(queryMonitoringDataSource);
+
+        performAsync(mockMvc, post("/work")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(works.toString())
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        budget.assertAtMost(5, "POST /work with 50 works");
+    }
+
+    @Test
+    public void testUnchangedSearchNotModified() throws Exception {
+        // no authenticated user, the search reads on the test replica, which can be behind: no ETag
+        String replicaETag = performAndWait(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .getResponse().getHeader("ETag");
+        assertNull("ETag of a page read on a replica", replicaETag);
+
+        // after a write, the reads of the user go to the primary and are tagged
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(UserServiceTest.USERNAME, null));
+        String saved = performAsync(mockMvc, post("/work")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"date\": \"2015/01/02\",\"time\": \"12:00\", \"minutes\":\"10\", \"description\": \"etag\" }]")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Number savedId = JsonPath.read(saved, "$[0].id");
+
+        MockHttpServletResponse primaryRead = performAndWait(mockMvc, get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("pageNumber", "1")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .getResponse();
+        assertEquals("private, no-cache", primaryRead.getHeader("Cache-Control"));
+        String etag = primaryRead.getHeader("ETag");
+        assertNotNull("ETag missing", etag);
+
+        mockMvc.perform(get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("pageNumber", "1")
+                .header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/03")
+                .param("pageNumber", "1")
+                .header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(request().asyncStarted());
+
+        mockMvc.perform(delete("/work")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + savedId.longValue() + "]")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/work")
+                .param("fromDate", "2015/01/01")
+                .param("toDate", "2015/01/02")
+                .param("pageNumber", "1")
+                .header("If-None-Match", etag)
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    public void testExportWorks() throws Exception {
+        mockMvc.perform(get("/work/export")
+                .param("fromDate", "2015/01/08")
+                .param("toDate", "2015/01/08")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(containsString("date,time,minutes,description\n")))
+                .andExpect(content().string(containsString(",19:00,1000,8 -  Moules Frites\n")));
+    }
+
+    @Test
+    public void testExportWorksGzip() throws Exception {
+        MvcResult result = mockMvc.perform(get("/work/export")
+                .param("fromDate", "2015/01/08")
+                .param("toDate", "2015/01/08")
+                .param("format", "ndjson")
+                .param("gzip", "true")
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        String content = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)).lines()
+                .collect(Collectors.joining("\n"));
+
+        assertTrue("export not as expected: " + content, content.contains("\"description\":\"8 -  Moules Frites\""));
+    }
+
+    @Test
+    public void testImportWorks() throws Exception {
+        mockMvc.perform(post("/work/import")
+                .param("importId", "rest-import")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .content("date,time,minutes,description\n2015/04/01,09:00,60,rest import\n")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['linesImported']").value(1))
+                .andExpect(jsonPath("$.['completed']").value(true));
+
+        mockMvc.perform(get("/work/import/rest-import")
+                .accept(MediaType.APPLICATION_JSON)
+                .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.['linesImported']").value(1));
+    }
+
     @Test
     public void deleteWorks() throws Exception {
         mockMvc.perform(delete("/work")
@@ -79,7 +381,8 @@ public class WorkRestWebServiceTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .principal(new PrincipalImpl(UserServiceTest.USERNAME)))
                 .andDo(print())
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0]").value(14));
 
         Work work = workRepository.findWorkById(14L);
         assertNull("work no deleted", work);
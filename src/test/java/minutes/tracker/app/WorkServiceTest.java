@@ -1,27 +1,46 @@
 package minutes.tracker.app;
 
+import minutes.tracker.app.dao.QueryMonitoringDataSource;
+import minutes.tracker.app.dao.WorkDescriptionRepository;
+import minutes.tracker.app.dao.WorkRepository;
 import minutes.tracker.app.dto.WorkDTO;
+import minutes.tracker.app.model.CountMode;
+import minutes.tracker.app.model.DescriptionFilter;
+import minutes.tracker.app.model.DescriptionMatch;
 import minutes.tracker.app.model.Work;
 import minutes.tracker.app.model.SearchResult;
+import minutes.tracker.app.model.WorkCursor;
+import minutes.tracker.app.services.SearchPageCache;
 import minutes.tracker.app.services.WorkService;
 import minutes.tracker.config.root.RootContextConfig;
 import minutes.tracker.config.root.TestConfiguration;
 
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static minutes.tracker.app.TestUtils.date;
 import static minutes.tracker.app.TestUtils.time;
 import static minutes.tracker.app.dto.WorkDTO.mapFromWorkEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -33,22 +52,186 @@ public class WorkServiceTest {
     @Autowired
     private WorkService workService;
 
+    @Autowired
+    private WorkRepository workRepository;
+
+    @Autowired
+    private SearchPageCache searchPageCache;
+
+    @Autowired
+    private QueryMonitoringDataSource queryMonitoringDataSource;
+
+    @Autowired
+    private WorkDescriptionRepository workDescriptionRepository;
+
     @PersistenceContext
     private EntityManager em;
 
     @Test
     public void testFindWorksByDate() {
-        SearchResult<Work> result = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,2), null ,null, 1);
+        SearchResult<WorkDTO> result = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,2), null ,null, 1);
         assertTrue("results not expected, total " + result.getResultsCount(), result.getResultsCount() == 4);
     }
 
+    @After
+    public void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testSearchPagesCachedUntilSave() {
+        // after a write, the reads of the user go to the primary and their pages are cached
+        authenticate(UserServiceTest.USERNAME);
+        workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(null, date(2015,3,11), time("10:00"), "cache", 10L)));
+
+        long hits = searchPageCache.getPages().getHitCount();
+
+        SearchResult<WorkDTO> first = workService.findWorks(UserServiceTest.USERNAME, date(2015,3,10), date(2015,3,10), null ,null, 1);
+        SearchResult<WorkDTO> second = workService.findWorks(UserServiceTest.USERNAME, date(2015,3,10), date(2015,3,10), null ,null, 1);
+        assertEquals("repeated search not cached", hits + 1, searchPageCache.getPages().getHitCount());
+        assertEquals("cached page differs", first.getResultsCount(), second.getResultsCount());
+        assertTrue("cached pages not measured", searchPageCache.getEstimatedBytes() > 0);
+
+        workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(null, date(2015,3,10), time("10:00"), "cache", 10L)));
+
+        SearchResult<WorkDTO> afterSave = workService.findWorks(UserServiceTest.USERNAME, date(2015,3,10), date(2015,3,10), null ,null, 1);
+        assertEquals("stale page after save", first.getResultsCount() + 1, afterSave.getResultsCount());
+    }
+
+    @Test
+    public void testSearchPagesReadOnReplicaNotCached() {
+        long hits = searchPageCache.getPages().getHitCount();
+
+        // no authenticated user, the read-only transactions go to the test replica
+        workService.findWorks(UserServiceTest.USERNAME, date(2015,3,12), date(2015,3,12), null ,null, 1);
+        workService.findWorks(UserServiceTest.USERNAME, date(2015,3,12), date(2015,3,12), null ,null, 1);
+        assertEquals("page read on a replica was cached", hits, searchPageCache.getPages().getHitCount());
+    }
+
     @Test
     public void testFindWorksByDateTime() {
-        SearchResult<Work> result = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,2),
+        SearchResult<WorkDTO> result = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,2),
                 time("11:00") ,time("14:00"), 1);
         assertTrue("results not expected, total " + result.getResultsCount(), result.getResultsCount() == 2);
     }
 
+    @Test
+    public void testFindWorksWithoutCount() {
+        SearchResult<WorkDTO> result = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null ,null, 1,
+                CountMode.NONE);
+        assertFalse("count must not be exact", result.isResultsCountExact());
+        assertTrue("results not expected, total " + result.getResultsCount(), result.getResultsCount() == 11);
+        assertNotNull("first page must have a next page", result.getNextCursor());
+    }
+
+    @Test
+    public void testFindWorksCappedCount() {
+        SearchResult<WorkDTO> exact = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null ,null, 1);
+        SearchResult<WorkDTO> capped = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null ,null, 1,
+                CountMode.CAPPED);
+        assertTrue("count must be exact bellow the cap", capped.isResultsCountExact());
+        assertEquals("capped count differs from exact count", exact.getResultsCount(), capped.getResultsCount());
+    }
+
+    @Test
+    public void testCountWorksUpToLimit() {
+        assertEquals("count not stopped at the limit", 5, workRepository.countWorksByDateTimeUpTo(UserServiceTest.USERNAME,
+                date(2015,1,1), date(2015,1,8), null, null, null, 5));
+        assertEquals("count not as expected bellow the limit", 4, workRepository.countWorksByDateTimeUpTo(
+                UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,2), null, null, null, 5));
+        assertEquals("count not filtered by time", 2, workRepository.countWorksByDateTimeUpTo(UserServiceTest.USERNAME,
+                date(2015,1,1), date(2015,1,2), time("11:00"), time("14:00"), null, 5));
+        assertEquals("count not filtered by description", 2, workRepository.countWorksByDateTimeUpTo(
+                UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null, null,
+                new DescriptionFilter("DUCK chiles", DescriptionMatch.CONTAINS, null), 5));
+        assertEquals("count not filtered by prefix", 2, workRepository.countWorksByDateTimeUpTo(
+                UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null, null,
+                new DescriptionFilter("6 -", DescriptionMatch.PREFIX, null), 5));
+    }
+
+    @Test
+    public void testFindWorksFromCursor() {
+        SearchResult<WorkDTO> page1 = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null ,null, 1);
+        SearchResult<WorkDTO> page2 = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null ,null, 2);
+        assertNull("first page has no previous page", page1.getPreviousCursor());
+        assertNotNull("first page must have a next page", page1.getNextCursor());
+
+        SearchResult<WorkDTO> next = workService.findWorksFromCursor(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8),
+                null, null, page1.getNextCursor());
+        assertEquals("cursor page differs from offset page", ids(page2.getResult()), ids(next.getResult()));
+        assertNull("second page is the last page", next.getNextCursor());
+
+        SearchResult<WorkDTO> previous = workService.findWorksFromCursor(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8),
+                null, null, next.getPreviousCursor());
+        assertEquals("cursor page differs from offset page", ids(page1.getResult()), ids(previous.getResult()));
+        assertNull("first page has no previous page", previous.getPreviousCursor());
+    }
+
+    @Test
+    public void testFindWorksByDescription() {
+        SearchResult<WorkDTO> contains = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8),
+                null, null, "DUCK chiles", DescriptionMatch.CONTAINS, 1, CountMode.EXACT);
+        assertEquals("description search not as expected", 2, contains.getResultsCount());
+
+        SearchResult<WorkDTO> prefix = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8),
+                null, null, "6 -", DescriptionMatch.PREFIX, 1, CountMode.EXACT);
+        assertEquals("prefix search not as expected", 2, prefix.getResultsCount());
+
+        SearchResult<WorkDTO> combined = workService.findWorks(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,5),
+                time("18:00"), time("20:00"), "chi", DescriptionMatch.CONTAINS, 1, CountMode.EXACT);
+        assertEquals("description not combined with the date and time", 3, combined.getResultsCount());
+
+        SearchResult<WorkDTO> fromCursor = workService.findWorksFromCursor(UserServiceTest.USERNAME, date(2015,1,1),
+                date(2015,1,8), null, null, "duck", DescriptionMatch.CONTAINS,
+                WorkCursor.after(date(2015,1,6), time("23:59"), 0L).encode());
+        assertEquals("cursor search not filtered by description", 1, fromCursor.getResult().size());
+    }
+
+    @Test
+    public void testDescriptionIndexFollowsChanges() {
+        assertEquals("unexpected zucchini", 0, findByDescription("zucchini").getResultsCount());
+
+        Work saved = workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(null, date(2015,4,1), time("10:00"), "Zucchini 100% fritters", 10L))).get(0);
+        assertEquals("saved work not found", 1, findByDescription("zucchini").getResultsCount());
+        assertEquals("wildcards not taken literally", 1, findByDescription("%").getResultsCount());
+        assertEquals("wildcards not taken literally", 0, findByDescription("_").getResultsCount());
+
+        workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(saved.getId(), date(2015,4,1), time("10:00"), "Pumpkin soup", 10L)));
+        assertEquals("old description still found", 0, findByDescription("zucchini").getResultsCount());
+        assertEquals("new description not found", 1, findByDescription("pumpkin").getResultsCount());
+
+        workService.deleteWorks(UserServiceTest.USERNAME, Arrays.asList(saved.getId()));
+        assertEquals("deleted work still found", 0, findByDescription("pumpkin").getResultsCount());
+    }
+
+    @Test
+    public void descriptionSearchFindsEntriesMissingFromADictionaryReadOnAReplica() throws SQLException {
+        // no authenticated user, the dictionary is read on the test replica
+        workDescriptionRepository.getDictionaries().remove(UserServiceTest.USERNAME);
+        assertEquals("unexpected late entry", 0, findByDescription("late entry").getResultsCount());
+
+        // an entry the replica did not have when the dictionary was read
+        try (Connection connection = queryMonitoringDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.executeUpdate("insert into WORK_DESCRIPTIONS (id, UUID_HIGH, UUID_LOW, version, DESCRIPTION, user_id) " +
+                    "select -102, 3, 3, 0, 'late entry', id from USERS where username = '" + UserServiceTest.USERNAME + "'");
+            statement.executeUpdate("insert into WORKS (id, UUID_HIGH, UUID_LOW, version, date, minutes, time, description_id, user_id) " +
+                    "select -102, 3, 3, 0, '2015-04-01 00:00:00', 15, '11:00:00', -102, id from USERS where username = '" + UserServiceTest.USERNAME + "'");
+        }
+
+        assertEquals("work of the late entry not found", 1, findByDescription("late entry").getResultsCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCursor() {
+        workService.findWorksFromCursor(UserServiceTest.USERNAME, date(2015,1,1), date(2015,1,8), null, null, "invalid");
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void fromDateAfterToDate() {
         workService.findWorks(UserServiceTest.USERNAME, date(2015,1,2), date(2015,1,1), null ,null, 1);
@@ -71,20 +254,29 @@ public class WorkServiceTest {
 
     @Test
     public void deleteWorks() {
-        workService.deleteWorks(Arrays.asList(15L));
+        List<Long> deletedIds = workService.deleteWorks(UserServiceTest.USERNAME, Arrays.asList(15L));
         Work work = em.find(Work.class, 15L);
         assertNull("work was not deleted" , work);
+        assertEquals("deleted ids not as expected", Arrays.asList(15L), deletedIds);
+    }
+
+    @Test
+    public void deleteWorksOfOtherUser() {
+        List<Long> deletedIds = workService.deleteWorks("otheruser", Arrays.asList(16L));
+        Work work = em.find(Work.class, 16L);
+        assertNotNull("work of another user was deleted" , work);
+        assertTrue("no works should be deleted", deletedIds.isEmpty());
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void deleteWorksNull() {
-        workService.deleteWorks(null);
+        workService.deleteWorks(UserServiceTest.USERNAME, null);
     }
 
     @Test
     public void saveWorks() {
-        WorkDTO work1 = mapFromWorkEntity(em.find(Work.class, 1L));
-        WorkDTO work2 = mapFromWorkEntity(em.find(Work.class, 2L));
+        WorkDTO work1 = mapFromWorkEntity(findWork(1L));
+        WorkDTO work2 = mapFromWorkEntity(findWork(2L));
 
         work1.setDescription("test1");
         work2.setMinutes(10L);
@@ -94,12 +286,126 @@ public class WorkServiceTest {
         workService.saveWorks(UserServiceTest.USERNAME, works);
 
 
-        Work m1 = em.find(Work.class, 1L);
-        assertTrue("description not as expected: " + m1.getDescription(), "test1".equals(m1.getDescription()));
+        Work m1 = findWork(1L);
+        assertEquals("description not as expected", "test1", m1.getDescription().getText());
 
         Work m2 = em.find(Work.class, 2L);
         assertTrue("minutes not as expected: " + m2.getMinutes(), m2.getMinutes() == 10L);
     }
 
+    @Test
+    public void saveNewWorks() {
+        List<WorkDTO> works = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            works.add(new WorkDTO(null, date(2015, 2, 1), time("10:00"), "new work " + i, 10L));
+        }
+
+        List<Work> savedWorks = workService.saveWorks(UserServiceTest.USERNAME, works);
+
+        assertEquals("saved works not as expected", 60, savedWorks.size());
+        assertEquals("ids must be unique", 60, savedWorks.stream().map(Work::getId).distinct().count());
+        assertNotNull("saved work not found", em.find(Work.class, savedWorks.get(59).getId()));
+    }
+
+    @Test
+    public void saveWorksStatementBudget() {
+        List<WorkDTO> works = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            works.add(new WorkDTO(null, date(2015, 2, 2 + i % 20), time("10:00"), "timesheet work " + i, 10L));
+        }
+
+        StatementBudget budget = StatementBudget.start(queryMonitoringDataSource);
+        workService.saveWorks(UserServiceTest.USERNAME, works);
+
+        // the ids come from pooled sequences and the inserts are batched, @see AbstractEntity - the 200 new catalog
+        // entries of the descriptions are inserted in one batch, without looking up their texts first
+        budget.assertAtMost(12, "saving 200 works with new descriptions");
+
+        StatementBudget reusedBudget = StatementBudget.start(queryMonitoringDataSource);
+        workService.saveWorks(UserServiceTest.USERNAME, works);
+
+        reusedBudget.assertAtMost(12, "saving 200 works with known descriptions");
+    }
+
+    @Test
+    public void saveWorksWithRepeatedDescriptions() {
+        List<Work> savedWorks = workService.saveWorks(UserServiceTest.USERNAME, Arrays.asList(
+                new WorkDTO(null, date(2015, 5, 1), time("10:00"), "daily standup", 15L),
+                new WorkDTO(null, date(2015, 5, 2), time("10:00"), "daily standup", 15L)));
+        Work later = workService.saveWork(UserServiceTest.USERNAME, null, date(2015, 5, 3), time("10:00"), "daily standup", 15L);
+
+        Long descriptionId = findWork(savedWorks.get(0).getId()).getDescription().getId();
+        assertEquals("repeated description not shared", descriptionId, findWork(savedWorks.get(1).getId()).getDescription().getId());
+        assertEquals("known description not reused", descriptionId, findWork(later.getId()).getDescription().getId());
+        assertEquals("description text not as expected", "daily standup", findWork(later.getId()).getDescription().getText());
+    }
+
+    @Test
+    public void saveWorksReusesDescriptionsMissingFromTheDictionary() throws SQLException {
+        // loads the dictionary of the user, then adds an entry behind its back, as another node would
+        workService.saveWork(UserServiceTest.USERNAME, null, date(2015, 5, 4), time("10:00"), "code review", 30L);
+
+        try (Connection connection = queryMonitoringDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.executeUpdate("insert into WORK_DESCRIPTIONS (id, UUID_HIGH, UUID_LOW, version, DESCRIPTION, user_id) " +
+                    "select -100, 1, 1, 0, 'saved on another node', id from USERS where username = '" + UserServiceTest.USERNAME + "'");
+        }
+
+        Work work = workService.saveWork(UserServiceTest.USERNAME, null, date(2015, 5, 4), time("11:00"), "saved on another node", 30L);
+
+        assertEquals("existing entry not reused", Long.valueOf(-100), findWork(work.getId()).getDescription().getId());
+        assertEquals("description stored twice", 1L, (long) em.createQuery(
+                "select count(d) from WorkDescription d where d.text = 'saved on another node'", Long.class).getSingleResult());
+    }
+
+    @Test
+    public void exportWorksWithDescriptionsMissingFromTheDictionary() throws SQLException {
+        // loads the dictionary of the user, then adds a work and its entry behind its back, as another node would
+        workService.saveWork(UserServiceTest.USERNAME, null, date(2015, 5, 6), time("10:00"), "exported", 30L);
+
+        try (Connection connection = queryMonitoringDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.executeUpdate("insert into WORK_DESCRIPTIONS (id, UUID_HIGH, UUID_LOW, version, DESCRIPTION, user_id) " +
+                    "select -101, 2, 2, 0, 'exported from another node', id from USERS where username = '" + UserServiceTest.USERNAME + "'");
+            statement.executeUpdate("insert into WORKS (id, UUID_HIGH, UUID_LOW, version, date, minutes, time, description_id, user_id) " +
+                    "select -101, 2, 2, 0, '2015-05-06 00:00:00', 15, '11:00:00', -101, id from USERS where username = '" + UserServiceTest.USERNAME + "'");
+        }
+
+        List<String> descriptions = new ArrayList<>();
+        StatementBudget budget = StatementBudget.start(queryMonitoringDataSource);
+        workService.exportWorks(UserServiceTest.USERNAME, date(2015, 5, 6), date(2015, 5, 6),
+                (work) -> descriptions.add(work.getDescription()));
+        budget.assertAtMost(1, "export of 2 works");
+
+        assertEquals("descriptions not exported", Arrays.asList("exported", "exported from another node"), descriptions);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void saveUnknownWork() {
+        workService.saveWorks(UserServiceTest.USERNAME,
+                Arrays.asList(new WorkDTO(-1L, date(2015, 1, 1), time("10:00"), "unknown", 10L)));
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null));
+    }
+
+    private Work findWork(Long id) {
+        return em.createQuery("select w from Work w join fetch w.description where w.id = :id", Work.class)
+                .setParameter("id", id)
+                .getSingleResult();
+    }
+
+    private SearchResult<WorkDTO> findByDescription(String description) {
+        return workService.findWorks(UserServiceTest.USERNAME, date(2015,4,1), date(2015,4,1), null, null,
+                description, DescriptionMatch.CONTAINS, 1, CountMode.EXACT);
+    }
+
+    private List<Long> ids(List<WorkDTO> works) {
+        return works.stream().map(WorkDTO::getId).collect(Collectors.toList());
+    }
+
 
 }